@@ -4,9 +4,16 @@ import com.sivasuryaa.fooddietplanner.controller.MainController;
 import com.sivasuryaa.fooddietplanner.service.DietPlannerService;
 import com.sivasuryaa.fooddietplanner.util.StyleManager;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.image.Image;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
@@ -26,10 +33,30 @@ public class FoodDietPlannerApplication extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        // Initialize services; data loads in the background from here on
+        dietPlannerService = new DietPlannerService();
+
+        // Configure primary stage
+        primaryStage.setTitle(APP_TITLE);
+
+        // Set application icon
+        try {
+            Image icon = new Image(Objects.requireNonNull(
+                getClass().getResourceAsStream(APP_ICON)));
+            primaryStage.getIcons().add(icon);
+        } catch (Exception e) {
+            System.err.println("Could not load application icon: " + e.getMessage());
+        }
+
+        // Show a splash until the data is ready, then load the main window behind it
+        primaryStage.setScene(createSplashScene());
+        primaryStage.centerOnScreen();
+        primaryStage.show();
+        Platform.runLater(() -> showMainWindow(primaryStage));
+    }
+
+    private void showMainWindow(Stage primaryStage) {
         try {
-            // Initialize services
-            dietPlannerService = new DietPlannerService();
-            
             // Load FXML
             FXMLLoader loader = new FXMLLoader(getClass().getResource(MAIN_FXML));
             Scene scene = new Scene(loader.load());
@@ -40,30 +67,22 @@ public class FoodDietPlannerApplication extends Application {
             
             // Apply styling
             StyleManager.applyTheme(scene);
-            
-            // Configure primary stage
-            primaryStage.setTitle(APP_TITLE);
-            primaryStage.setScene(scene);
-            primaryStage.setMinWidth(1200);
-            primaryStage.setMinHeight(800);
-            
-            // Set application icon
-            try {
-                Image icon = new Image(Objects.requireNonNull(
-                    getClass().getResourceAsStream(APP_ICON)));
-                primaryStage.getIcons().add(icon);
-            } catch (Exception e) {
-                System.err.println("Could not load application icon: " + e.getMessage());
-            }
-            
-            // Center the window
-            primaryStage.centerOnScreen();
-            
-            // Show the window
-            primaryStage.show();
-            
-            // Initialize controller after showing
-            controller.initialize();
+
+            dietPlannerService.whenReady().whenComplete((ignored, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    showLoadFailure(error);
+                    return;
+                }
+                primaryStage.setScene(scene);
+                primaryStage.setMinWidth(1200);
+                primaryStage.setMinHeight(800);
+
+                // Center the window
+                primaryStage.centerOnScreen();
+
+                // Initialize controller after showing
+                controller.initialize();
+            }));
             
         } catch (IOException e) {
             e.printStackTrace();
@@ -72,11 +91,35 @@ public class FoodDietPlannerApplication extends Application {
         }
     }
 
+    private void showLoadFailure(Throwable error) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(APP_TITLE);
+        alert.setHeaderText("Your data could not be loaded");
+        alert.setContentText(error.getMessage());
+        alert.showAndWait();
+        Platform.exit();
+    }
+
+    private Scene createSplashScene() {
+        Label titleLabel = new Label(APP_TITLE);
+        titleLabel.setStyle("-fx-font-size: 20px; -fx-font-weight: bold;");
+        ProgressIndicator progressIndicator = new ProgressIndicator();
+        progressIndicator.setPrefSize(40, 40);
+
+        VBox splash = new VBox(16, titleLabel, progressIndicator, new Label("Loading your data..."));
+        splash.setAlignment(Pos.CENTER);
+        splash.setPadding(new Insets(40));
+
+        Scene scene = new Scene(splash, 360, 220);
+        StyleManager.applyTheme(scene);
+        return scene;
+    }
+
     @Override
     public void stop() {
         // Cleanup resources
         if (dietPlannerService != null) {
-            dietPlannerService.saveAllData();
+            dietPlannerService.shutdown();
         }
         System.out.println("Application stopped gracefully");
     }
@@ -1,7 +1,10 @@
 package com.sivasuryaa.fooddietplanner.controller;
 
 import com.sivasuryaa.fooddietplanner.model.*;
+import com.sivasuryaa.fooddietplanner.service.DataChangeEvent;
 import com.sivasuryaa.fooddietplanner.service.DietPlannerService;
+import com.sivasuryaa.fooddietplanner.service.TaskScheduler;
+import com.sivasuryaa.fooddietplanner.storage.MealLoadListener;
 import com.sivasuryaa.fooddietplanner.util.DateUtils;
 import com.sivasuryaa.fooddietplanner.util.FormatUtils;
 import com.sivasuryaa.fooddietplanner.view.*;
@@ -20,8 +23,15 @@ import javafx.collections.ObservableList;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Main controller for the Food Diet Planner application
@@ -69,6 +79,7 @@ public class MainController {
     @FXML private VBox analyticsContainer;
 
     private DietPlannerService dietPlannerService;
+    private boolean todaysMealsLoaded;
 
     /**
      * Set the diet planner service (dependency injection)
@@ -78,7 +89,8 @@ public class MainController {
     }
 
     /**
-     * Initialize the controller after FXML loading
+     * Initialize the controller after FXML loading; the views are populated once
+     * the service has finished loading its data
      */
     public void initialize() {
         if (dietPlannerService == null) {
@@ -86,16 +98,38 @@ public class MainController {
             return;
         }
 
-        Platform.runLater(() -> {
-            initializeDashboard();
-            initializeMealsTab();
-            initializeFoodDatabaseTab();
-            initializeProfileTab();
-            initializeAnalyticsTab();
-            
-            // Set up tab change listener to refresh data
-            mainTabPane.getSelectionModel().selectedItemProperty().addListener(
-                (obs, oldTab, newTab) -> refreshCurrentTab());
+        dietPlannerService.whenReady().thenRun(() -> {
+            Platform.runLater(() -> {
+                // Painted from the service's dashboard snapshot while history loads
+                initializeDashboard();
+                initializeMealsTab();
+                initializeFoodDatabaseTab();
+                initializeProfileTab();
+                initializeAnalyticsTab();
+
+                // Set up tab change listener to refresh data
+                mainTabPane.getSelectionModel().selectedItemProperty().addListener(
+                    (obs, oldTab, newTab) -> refreshCurrentTab());
+
+                // Apply each change to the visible tab; hidden tabs are refreshed when selected
+                dietPlannerService.addChangeListener(event -> Platform.runLater(() -> applyChange(event)));
+            });
+
+            // Stream recent history in the background and refresh views as it arrives
+            dietPlannerService.preloadRecentMeals(new MealLoadListener() {
+                @Override
+                public void onTodayLoaded(List<Meal> meals) {
+                    Platform.runLater(() -> {
+                        todaysMealsLoaded = true;
+                        updateDashboard();
+                    });
+                }
+
+                @Override
+                public void onMonthLoaded(YearMonth month) {
+                    Platform.runLater(() -> refreshCurrentTab());
+                }
+            });
         });
     }
 
@@ -113,7 +147,10 @@ public class MainController {
             addMealButton.setOnAction(e -> showAddMealDialog());
         }
         
-        updateMealsDisplay();
+        // Otherwise filled in by the refresh once the current month has loaded
+        if (todaysMealsLoaded) {
+            updateMealsDisplay();
+        }
     }
 
     private void initializeFoodDatabaseTab() {
@@ -191,7 +228,7 @@ public class MainController {
             updateTargetWeightLabel();
         }
 
-        updateProfileCalculations();
+        updateProfileCalculations(profile);
     }
 
     private void initializeAnalyticsTab() {
@@ -205,10 +242,14 @@ public class MainController {
     }
 
     private void updateDashboard() {
-        UserProfile profile = dietPlannerService.getUserProfile();
-        double dailyCalories = dietPlannerService.getTotalCaloriesToday();
+        boolean includeMeals = todaysMealsLoaded;
+        runInBackground(TaskScheduler.Lane.REFRESH, "dashboard",
+            () -> new DashboardData(dietPlannerService, includeMeals), this::showDashboard);
+    }
+
+    private void showDashboard(DashboardData data) {
+        UserProfile profile = data.profile;
         double calorieGoal = profile.getDailyCalorieGoal();
-        double progress = dietPlannerService.getCalorieProgress();
 
         // Update welcome message
         if (welcomeLabel != null) {
@@ -218,7 +259,7 @@ public class MainController {
 
         // Update calorie information
         if (dailyCaloriesLabel != null) {
-            dailyCaloriesLabel.setText(FormatUtils.formatCalories(dailyCalories));
+            dailyCaloriesLabel.setText(FormatUtils.formatCalories(data.today.getCalories()));
         }
 
         if (calorieGoalLabel != null) {
@@ -226,29 +267,29 @@ public class MainController {
         }
 
         if (calorieProgressBar != null) {
-            calorieProgressBar.setProgress(progress);
+            calorieProgressBar.setProgress(data.progress);
         }
 
         if (progressPercentageLabel != null) {
-            progressPercentageLabel.setText(FormatUtils.formatPercentage(progress));
+            progressPercentageLabel.setText(FormatUtils.formatPercentage(data.progress));
         }
 
         // Update macro chart
-        updateMacroChart();
+        updateMacroChart(data.today);
 
         // Update today's meals
-        updateTodaysMeals();
+        updateTodaysMeals(data.todaysMeals);
 
         // Update recommendations
-        updateRecommendations();
+        updateRecommendations(data.recommendations);
     }
 
-    private void updateMacroChart() {
+    private void updateMacroChart(DailyTotals today) {
         if (macroChart == null) return;
 
-        double protein = dietPlannerService.getTotalProteinToday();
-        double carbs = dietPlannerService.getTotalCarbsToday();
-        double fat = dietPlannerService.getTotalFatToday();
+        double protein = today.getProtein();
+        double carbs = today.getCarbs();
+        double fat = today.getFat();
 
         macroChart.getData().clear();
 
@@ -263,11 +304,19 @@ public class MainController {
         }
     }
 
-    private void updateTodaysMeals() {
+    /**
+     * @param todaysMeals null while today's meals are still loading
+     */
+    private void updateTodaysMeals(List<Meal> todaysMeals) {
         if (todaysMealsBox == null) return;
 
         todaysMealsBox.getChildren().clear();
-        List<Meal> todaysMeals = dietPlannerService.getMealsForToday();
+        if (todaysMeals == null) {
+            Label loadingLabel = new Label("Loading today's meals...");
+            loadingLabel.getStyleClass().add("muted-text");
+            todaysMealsBox.getChildren().add(loadingLabel);
+            return;
+        }
 
         if (todaysMeals.isEmpty()) {
             Label noMealsLabel = new Label("No meals logged today");
@@ -281,11 +330,10 @@ public class MainController {
         }
     }
 
-    private void updateRecommendations() {
+    private void updateRecommendations(List<String> recommendations) {
         if (recommendationsBox == null) return;
 
         recommendationsBox.getChildren().clear();
-        List<String> recommendations = dietPlannerService.getDailyRecommendations();
 
         for (String recommendation : recommendations) {
             HBox recBox = new HBox(10);
@@ -305,14 +353,15 @@ public class MainController {
     private void updateMealsDisplay() {
         if (mealsContainer == null || mealDatePicker == null) return;
 
-        mealsContainer.getChildren().clear();
         LocalDate selectedDate = mealDatePicker.getValue();
-        List<Meal> meals = dietPlannerService.getMealsForDate(selectedDate);
+        runInBackground(TaskScheduler.Lane.REFRESH, "meals",
+            () -> dietPlannerService.getMealsForDate(selectedDate), meals -> showMeals(selectedDate, meals));
+    }
 
+    private void showMeals(LocalDate selectedDate, List<Meal> meals) {
+        mealsContainer.getChildren().clear();
         if (meals.isEmpty()) {
-            Label noMealsLabel = new Label("No meals found for " + DateUtils.formatDate(selectedDate));
-            noMealsLabel.getStyleClass().add("muted-text");
-            mealsContainer.getChildren().add(noMealsLabel);
+            showNoMealsLabel(selectedDate);
         } else {
             for (Meal meal : meals) {
                 VBox mealCard = createDetailedMealCard(meal);
@@ -321,22 +370,55 @@ public class MainController {
         }
     }
 
+    /**
+     * Replace the cards of the changed meals on the meals tab instead of rebuilding the list
+     */
+    private void applyMealChange(DataChangeEvent event) {
+        if (mealsContainer == null || mealDatePicker == null) return;
+
+        LocalDate selectedDate = mealDatePicker.getValue();
+        Set<EntityId> changedIds = new HashSet<>();
+        event.getMeals().forEach(meal -> changedIds.add(meal.getId()));
+        // Drops the meals' old cards, and the "no meals" label which has no meal id
+        mealsContainer.getChildren().removeIf(node -> node.getUserData() == null || changedIds.contains(node.getUserData()));
+        if (event.getType() != DataChangeEvent.Type.MEAL_DELETED) {
+            for (Meal meal : event.getMeals()) {
+                if (meal.getDateTime().toLocalDate().equals(selectedDate)) {
+                    mealsContainer.getChildren().add(createDetailedMealCard(meal));
+                }
+            }
+        }
+        if (mealsContainer.getChildren().isEmpty()) {
+            showNoMealsLabel(selectedDate);
+        }
+    }
+
+    private void showNoMealsLabel(LocalDate date) {
+        Label noMealsLabel = new Label("No meals found for " + DateUtils.formatDate(date));
+        noMealsLabel.getStyleClass().add("muted-text");
+        mealsContainer.getChildren().add(noMealsLabel);
+    }
+
     private void updateFoodDisplay() {
         if (foodItemsContainer == null) return;
 
-        foodItemsContainer.getChildren().clear();
-        
         String searchQuery = foodSearchField != null ? foodSearchField.getText() : "";
         FoodCategory selectedCategory = categoryFilterCombo != null ? categoryFilterCombo.getValue() : null;
-        
-        List<FoodItem> foods = dietPlannerService.searchFood(searchQuery);
-        
-        if (selectedCategory != null) {
-            foods = foods.stream()
-                        .filter(food -> food.getCategory() == selectedCategory)
-                        .toList();
-        }
 
+        // Runs on every keystroke; a newer search replaces one still pending
+        runInBackground(TaskScheduler.Lane.INTERACTIVE, "food-search", () -> {
+            List<FoodItem> foods = dietPlannerService.searchFood(searchQuery);
+            if (selectedCategory != null) {
+                foods = foods.stream()
+                            .filter(food -> food.getCategory() == selectedCategory)
+                            .toList();
+            }
+            return foods;
+        }, this::showFoods);
+    }
+
+    private void showFoods(List<FoodItem> foods) {
+        foodItemsContainer.getChildren().clear();
         if (foods.isEmpty()) {
             Label noFoodsLabel = new Label("No food items found");
             noFoodsLabel.getStyleClass().add("muted-text");
@@ -363,9 +445,10 @@ public class MainController {
         if (targetWeightSlider != null) builder.targetWeight(targetWeightSlider.getValue());
 
         UserProfile updatedProfile = builder.build();
-        dietPlannerService.updateUserProfile(updatedProfile);
-        
-        updateProfileCalculations();
+        // Dragging a slider saves once, with the last value
+        saveInBackground("profile", "Update Profile", () -> dietPlannerService.updateUserProfile(updatedProfile));
+
+        updateProfileCalculations(updatedProfile);
     }
 
     private void updateWeightLabel() {
@@ -386,9 +469,8 @@ public class MainController {
         }
     }
 
-    private void updateProfileCalculations() {
-        UserProfile profile = dietPlannerService.getUserProfile();
-        
+    private void updateProfileCalculations(UserProfile profile) {
+
         if (bmrLabel != null) {
             bmrLabel.setText("BMR: " + FormatUtils.formatCalories(profile.getBMR()));
         }
@@ -421,6 +503,7 @@ public class MainController {
         VBox card = new VBox(5);
         card.getStyleClass().add("meal-card");
         card.setPadding(new Insets(10));
+        card.setUserData(meal.getId());
 
         Label nameLabel = new Label(meal.getName());
         nameLabel.getStyleClass().add("meal-name");
@@ -466,6 +549,7 @@ public class MainController {
         VBox card = new VBox(5);
         card.getStyleClass().add("food-card");
         card.setPadding(new Insets(10));
+        card.setUserData(food.getId());
 
         Label nameLabel = new Label(food.getName());
         nameLabel.getStyleClass().add("food-name");
@@ -493,8 +577,7 @@ public class MainController {
             Optional<Meal> result = dialog.showAndWait();
             
             if (result.isPresent()) {
-                dietPlannerService.addMeal(result.get());
-                refreshCurrentTab();
+                reportFailure("Add Meal", dietPlannerService.getMealIngest().addMeal(result.get()));
             }
         } catch (Exception e) {
             showErrorDialog("Add Meal", "Failed to open add meal dialog: " + e.getMessage());
@@ -507,8 +590,7 @@ public class MainController {
             Optional<Meal> result = dialog.showAndWait();
             
             if (result.isPresent()) {
-                dietPlannerService.updateMeal(result.get());
-                refreshCurrentTab();
+                reportFailure("Edit Meal", dietPlannerService.getMealIngest().updateMeal(result.get()));
             }
         } catch (Exception e) {
             showErrorDialog("Edit Meal", "Failed to open edit meal dialog: " + e.getMessage());
@@ -523,8 +605,44 @@ public class MainController {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            dietPlannerService.deleteMeal(meal);
+            reportFailure("Delete Meal", dietPlannerService.getMealIngest().deleteMeal(meal.getId()));
+        }
+    }
+
+    /**
+     * Bring the visible tab up to date with one change, touching only what it affects
+     */
+    private void applyChange(DataChangeEvent event) {
+        if (event.getType() == DataChangeEvent.Type.RELOADED) {
             refreshCurrentTab();
+            return;
+        }
+        Tab selectedTab = mainTabPane.getSelectionModel().getSelectedItem();
+        if (selectedTab == null) return;
+
+        String tabId = selectedTab.getId();
+        switch (tabId != null ? tabId : "") {
+            case "dashboardTab" -> {
+                if (event.affectsDate(LocalDate.now()) || event.getType() == DataChangeEvent.Type.PROFILE_CHANGED) {
+                    updateDashboard();
+                }
+            }
+            case "mealsTab" -> {
+                if (mealDatePicker != null && event.affectsDate(mealDatePicker.getValue())) {
+                    applyMealChange(event);
+                }
+            }
+            case "foodTab" -> {
+                if (event.getType() == DataChangeEvent.Type.FOOD_DELETED && foodItemsContainer != null) {
+                    foodItemsContainer.getChildren().removeIf(node -> event.getFoodId().equals(node.getUserData()));
+                } else if (event.getType() == DataChangeEvent.Type.FOOD_SAVED) {
+                    // Whether and where it is listed depends on the search, so ask again
+                    updateFoodDisplay();
+                }
+            }
+            default -> {
+                // The profile tab makes its own changes; analytics do not depend on single changes yet
+            }
         }
     }
 
@@ -544,6 +662,46 @@ public class MainController {
         }
     }
 
+    /**
+     * Run a query on the scheduler and show its result on the FX thread. A newer
+     * request with the same key supersedes one that has not finished, whose
+     * result is then never shown.
+     */
+    private <T> void runInBackground(TaskScheduler.Lane lane, String key, Callable<T> query, Consumer<T> show) {
+        dietPlannerService.getScheduler().submit(lane, key, query).whenComplete((result, error) -> {
+            if (error instanceof CancellationException) return;
+            if (error != null) {
+                System.err.println("Failed to load " + key + ": " + error.getMessage());
+            } else {
+                Platform.runLater(() -> show.accept(result));
+            }
+        });
+    }
+
+    /**
+     * Store a change off the FX thread; views follow through the service's change events
+     * @param key replaces a pending save with the same key, or null to replace nothing
+     */
+    private void saveInBackground(String key, String title, Runnable change) {
+        reportFailure(title, dietPlannerService.getScheduler().submit(TaskScheduler.Lane.PERSISTENCE, key, () -> {
+            change.run();
+            return null;
+        }));
+    }
+
+    /**
+     * Show an error dialog if a change made in the background fails
+     */
+    private void reportFailure(String title, CompletableFuture<Void> saved) {
+        saved.exceptionally(error -> {
+            // A cancelled save was replaced by a newer one
+            if (!(error instanceof CancellationException)) {
+                Platform.runLater(() -> showErrorDialog(title, "Failed to save changes: " + error.getMessage()));
+            }
+            return null;
+        });
+    }
+
     private void showErrorDialog(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle(title);
@@ -551,4 +709,26 @@ public class MainController {
         alert.setContentText(message);
         alert.showAndWait();
     }
+
+    /**
+     * What the dashboard shows, gathered off the FX thread
+     */
+    private static class DashboardData {
+        private final UserProfile profile;
+        private final DailyTotals today;
+        private final double progress;
+        private final List<Meal> todaysMeals;
+        private final List<String> recommendations;
+
+        /**
+         * @param includeMeals false while today's meals are still loading
+         */
+        DashboardData(DietPlannerService service, boolean includeMeals) {
+            this.profile = service.getUserProfile();
+            this.today = service.getTotalsForDate(LocalDate.now());
+            this.progress = service.getCalorieProgress();
+            this.todaysMeals = includeMeals ? service.getMealsForToday() : null;
+            this.recommendations = service.getDailyRecommendations();
+        }
+    }
 }
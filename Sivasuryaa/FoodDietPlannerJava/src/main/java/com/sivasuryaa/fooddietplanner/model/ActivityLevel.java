@@ -35,7 +35,7 @@ public enum ActivityLevel {
         return multiplier;
     }
 
-    @JsonCreator
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
     public static ActivityLevel fromString(@JsonProperty("activityLevel") String activityLevel) {
         for (ActivityLevel al : ActivityLevel.values()) {
             if (al.name().equalsIgnoreCase(activityLevel) || 
@@ -0,0 +1,58 @@
+package com.sivasuryaa.fooddietplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Nutrient totals of all meals logged on one day
+ */
+public class DailyTotals {
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final LocalDate date;
+    private final double calories;
+    private final double protein;
+    private final double carbs;
+    private final double fat;
+    private final int mealCount;
+
+    @JsonCreator
+    public DailyTotals(@JsonProperty("date") LocalDate date,
+                       @JsonProperty("calories") double calories,
+                       @JsonProperty("protein") double protein,
+                       @JsonProperty("carbs") double carbs,
+                       @JsonProperty("fat") double fat,
+                       @JsonProperty("mealCount") int mealCount) {
+        this.date = date;
+        this.calories = calories;
+        this.protein = protein;
+        this.carbs = carbs;
+        this.fat = fat;
+        this.mealCount = mealCount;
+    }
+
+    /**
+     * Sum the given meals, which are expected to belong to the date
+     */
+    public static DailyTotals of(LocalDate date, List<Meal> meals) {
+        double calories = 0, protein = 0, carbs = 0, fat = 0;
+        for (Meal meal : meals) {
+            calories += meal.getTotalCalories();
+            protein += meal.getTotalProtein();
+            carbs += meal.getTotalCarbs();
+            fat += meal.getTotalFat();
+        }
+        return new DailyTotals(date, calories, protein, carbs, fat, meals.size());
+    }
+
+    // Getters
+    public LocalDate getDate() { return date; }
+    public double getCalories() { return calories; }
+    public double getProtein() { return protein; }
+    public double getCarbs() { return carbs; }
+    public double getFat() { return fat; }
+    public int getMealCount() { return mealCount; }
+}
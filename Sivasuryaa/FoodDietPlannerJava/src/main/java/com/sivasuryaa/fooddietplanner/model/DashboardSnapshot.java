@@ -0,0 +1,58 @@
+package com.sivasuryaa.fooddietplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Precomputed per-day totals for the most recent days, persisted so the
+ * dashboard can be painted before the meal history is loaded.
+ *
+ * The snapshot is only valid for the meal data it was computed from, which is
+ * identified by the meal repository revision at the time it was taken.
+ */
+public class DashboardSnapshot {
+    /** Bumped whenever the layout or meaning of the snapshot changes */
+    public static final int FORMAT_VERSION = 1;
+
+    private final int formatVersion;
+    private final long mealRevision;
+    private final double calorieGoal;
+    private final List<DailyTotals> days;
+
+    @JsonCreator
+    public DashboardSnapshot(@JsonProperty("formatVersion") int formatVersion,
+                             @JsonProperty("mealRevision") long mealRevision,
+                             @JsonProperty("calorieGoal") double calorieGoal,
+                             @JsonProperty("days") List<DailyTotals> days) {
+        this.formatVersion = formatVersion;
+        this.mealRevision = mealRevision;
+        this.calorieGoal = calorieGoal;
+        this.days = days != null ? List.copyOf(days) : List.of();
+    }
+
+    /**
+     * @return true if the snapshot was taken from meal data at the given revision
+     */
+    public boolean isValidFor(long currentMealRevision) {
+        return formatVersion == FORMAT_VERSION && mealRevision == currentMealRevision;
+    }
+
+    /**
+     * @return the totals for the date, or null if the snapshot does not cover it
+     */
+    public DailyTotals getTotals(LocalDate date) {
+        for (DailyTotals totals : days) {
+            if (totals.getDate().equals(date)) return totals;
+        }
+        return null;
+    }
+
+    // Getters
+    public int getFormatVersion() { return formatVersion; }
+    public long getMealRevision() { return mealRevision; }
+    public double getCalorieGoal() { return calorieGoal; }
+    public List<DailyTotals> getDays() { return days; }
+}
@@ -34,7 +34,7 @@ public enum DietGoal {
         return calorieAdjustment;
     }
 
-    @JsonCreator
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
     public static DietGoal fromString(@JsonProperty("goal") String goal) {
         for (DietGoal dg : DietGoal.values()) {
             if (dg.name().equalsIgnoreCase(goal) || 
@@ -0,0 +1,158 @@
+package com.sivasuryaa.fooddietplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identifier of a meal or food, held as the two 64-bit halves of a UUID.
+ *
+ * New ids are UUID version 7: the top 48 bits are the creation time in
+ * milliseconds and the next 12 a counter, so ids created later compare greater,
+ * even within one millisecond, and the remaining bits are random. They are
+ * drawn from {@link ThreadLocalRandom} rather than {@code SecureRandom}, as ids
+ * only need to be unique, not unguessable.
+ *
+ * The text form is the usual 36-character UUID and is only built where an id
+ * leaves the application: in files, database rows and the user interface.
+ * Random UUIDs stored before are read into the same two halves. Any other text
+ * stored as an id, such as the catalog's {@code catalog-0001}, is kept as text.
+ */
+public final class EntityId implements Comparable<EntityId> {
+    private static final int TEXT_LENGTH = 36;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    // Milliseconds shifted left by 12, plus the counter, of the id generated last
+    private static final AtomicLong LAST_TIME_AND_COUNTER = new AtomicLong();
+
+    private final long high;
+    private final long low;
+    // Null unless the id is not a UUID
+    private final String text;
+
+    private EntityId(long high, long low, String text) {
+        this.high = high;
+        this.low = low;
+        this.text = text;
+    }
+
+    /**
+     * @return a new time-ordered id
+     */
+    public static EntityId generate() {
+        long now = System.currentTimeMillis() << 12;
+        long timeAndCounter;
+        while (true) {
+            long last = LAST_TIME_AND_COUNTER.get();
+            // Once the counter runs out within a millisecond, borrow from the next one
+            timeAndCounter = Math.max(now, last + 1);
+            if (LAST_TIME_AND_COUNTER.compareAndSet(last, timeAndCounter)) break;
+        }
+        long high = (timeAndCounter >>> 12) << 16 | 0x7000L | (timeAndCounter & 0xFFFL);
+        long low = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new EntityId(high, low, null);
+    }
+
+    public static EntityId of(long high, long low) {
+        return new EntityId(high, low, null);
+    }
+
+    /**
+     * Read the text form of an id
+     * @return the id, or null for null text
+     */
+    @JsonCreator
+    public static EntityId parse(String value) {
+        if (value == null) return null;
+        if (value.length() != TEXT_LENGTH) return new EntityId(0, 0, value);
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < TEXT_LENGTH; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return new EntityId(0, 0, value);
+                continue;
+            }
+            // Lowercase only, so that the text form reads back exactly as it was stored
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) return new EntityId(0, 0, value);
+            if (i < 18) {
+                high = high << 4 | digit;
+            } else {
+                low = low << 4 | digit;
+            }
+        }
+        return new EntityId(high, low, null);
+    }
+
+    public long getHigh() { return high; }
+    public long getLow() { return low; }
+
+    /**
+     * @return true for ids generated by {@link #generate()}, whose order is their creation order
+     */
+    public boolean isTimeOrdered() {
+        return text == null && (high >>> 12 & 0xF) == 7;
+    }
+
+    /**
+     * @return the creation time in epoch milliseconds of a time-ordered id, or -1 for other ids
+     */
+    public long getTimestamp() {
+        return isTimeOrdered() ? high >>> 16 : -1;
+    }
+
+    /**
+     * Order as the text forms do, so a database sorting the stored text agrees;
+     * for time-ordered ids that is creation order
+     */
+    @Override
+    public int compareTo(EntityId other) {
+        if (text != null || other.text != null) {
+            return toString().compareTo(other.toString());
+        }
+        // Fixed-width lowercase hex sorts like the unsigned halves
+        int comparison = Long.compareUnsigned(high, other.high);
+        return comparison != 0 ? comparison : Long.compareUnsigned(low, other.low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EntityId)) return false;
+        EntityId other = (EntityId) o;
+        if (text != null || other.text != null) {
+            return text != null && text.equals(other.text);
+        }
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        if (text != null) return text.hashCode();
+        long mixed = high ^ low;
+        return (int) (mixed ^ mixed >>> 32);
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        if (text != null) return text;
+        char[] chars = new char[TEXT_LENGTH];
+        int position = 0;
+        for (int i = 15; i >= 0; i--) {
+            if (position == 8 || position == 13) {
+                chars[position++] = '-';
+            }
+            chars[position++] = HEX_DIGITS[(int) (high >>> i * 4) & 0xF];
+        }
+        for (int i = 15; i >= 0; i--) {
+            if (position == 18 || position == 23) {
+                chars[position++] = '-';
+            }
+            chars[position++] = HEX_DIGITS[(int) (low >>> i * 4) & 0xF];
+        }
+        return new String(chars);
+    }
+}
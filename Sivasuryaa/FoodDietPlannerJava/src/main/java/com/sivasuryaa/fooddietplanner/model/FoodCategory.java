@@ -50,7 +50,7 @@ public enum FoodCategory {
         };
     }
 
-    @JsonCreator
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
     public static FoodCategory fromString(@JsonProperty("category") String category) {
         for (FoodCategory fc : FoodCategory.values()) {
             if (fc.name().equalsIgnoreCase(category) || 
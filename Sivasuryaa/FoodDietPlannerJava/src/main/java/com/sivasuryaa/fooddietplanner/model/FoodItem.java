@@ -4,13 +4,12 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Objects;
-import java.util.UUID;
 
 /**
  * Model class representing a food item with nutritional information
  */
 public class FoodItem {
-    private final String id;
+    private final EntityId id;
     private String name;
     private double calories;
     private double protein;
@@ -22,11 +21,11 @@ public class FoodItem {
 
     // Default constructor for Jackson
     public FoodItem() {
-        this.id = UUID.randomUUID().toString();
+        this.id = EntityId.generate();
     }
 
     @JsonCreator
-    public FoodItem(@JsonProperty("id") String id,
+    public FoodItem(@JsonProperty("id") EntityId id,
                     @JsonProperty("name") String name,
                     @JsonProperty("calories") double calories,
                     @JsonProperty("protein") double protein,
@@ -35,7 +34,7 @@ public class FoodItem {
                     @JsonProperty("fiber") double fiber,
                     @JsonProperty("servingSize") String servingSize,
                     @JsonProperty("category") FoodCategory category) {
-        this.id = id != null ? id : UUID.randomUUID().toString();
+        this.id = id != null ? id : EntityId.generate();
         this.name = name;
         this.calories = calories;
         this.protein = protein;
@@ -52,7 +51,7 @@ public class FoodItem {
     }
 
     // Getters
-    public String getId() { return id; }
+    public EntityId getId() { return id; }
     public String getName() { return name; }
     public double getCalories() { return calories; }
     public double getProtein() { return protein; }
@@ -2,41 +2,50 @@ package com.sivasuryaa.fooddietplanner.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
- * Model class representing a meal containing multiple food items
+ * Model class representing a meal containing multiple food items.
+ *
+ * A meal read from storage may defer building its food list: it then carries
+ * its totals, which answer the nutrition queries, and loads the list the first
+ * time it is accessed or changed.
  */
 public class Meal {
-    private final String id;
+    private final EntityId id;
     private String name;
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime dateTime;
+    // Null until loaded from foodItemsSource
     private List<FoodItem> foodItems;
+    private Supplier<List<FoodItem>> foodItemsSource;
+    private MealTotals unloadedTotals;
     private MealType type;
 
     // Default constructor for Jackson
     public Meal() {
-        this.id = UUID.randomUUID().toString();
-        this.foodItems = new ArrayList<>();
+        this.id = EntityId.generate();
+        this.foodItems = List.of();
     }
 
     @JsonCreator
-    public Meal(@JsonProperty("id") String id,
+    public Meal(@JsonProperty("id") EntityId id,
                 @JsonProperty("name") String name,
                 @JsonProperty("dateTime") LocalDateTime dateTime,
                 @JsonProperty("foodItems") List<FoodItem> foodItems,
                 @JsonProperty("type") MealType type) {
-        this.id = id != null ? id : UUID.randomUUID().toString();
+        this.id = id != null ? id : EntityId.generate();
         this.name = name;
         this.dateTime = dateTime;
-        this.foodItems = foodItems != null ? new ArrayList<>(foodItems) : new ArrayList<>();
+        this.foodItems = immutableCopy(foodItems);
         this.type = type;
     }
 
@@ -44,59 +53,114 @@ public class Meal {
         this(null, name, dateTime, new ArrayList<>(), type);
     }
 
+    /**
+     * Meal whose food list is loaded from the source when first needed
+     * @param totals the totals of the foods the source will supply
+     */
+    public Meal(EntityId id, String name, LocalDateTime dateTime, MealType type,
+                MealTotals totals, Supplier<List<FoodItem>> foodItemsSource) {
+        this.id = id != null ? id : EntityId.generate();
+        this.name = name;
+        this.dateTime = dateTime;
+        this.type = type;
+        this.unloadedTotals = totals;
+        this.foodItemsSource = foodItemsSource;
+    }
+
     // Getters
-    public String getId() { return id; }
+    public EntityId getId() { return id; }
     public String getName() { return name; }
     public LocalDateTime getDateTime() { return dateTime; }
-    public List<FoodItem> getFoodItems() { return new ArrayList<>(foodItems); }
+    /**
+     * @return the current foods as a read-only list; changing the meal replaces
+     *         the list rather than modifying it, so it can be kept without copying
+     */
+    public synchronized List<FoodItem> getFoodItems() { return foods(); }
     public MealType getType() { return type; }
 
     // Setters
     public void setName(String name) { this.name = name; }
     public void setDateTime(LocalDateTime dateTime) { this.dateTime = dateTime; }
-    public void setFoodItems(List<FoodItem> foodItems) { 
-        this.foodItems = foodItems != null ? new ArrayList<>(foodItems) : new ArrayList<>(); 
+    public synchronized void setFoodItems(List<FoodItem> foodItems) { 
+        this.foodItems = immutableCopy(foodItems);
+        this.foodItemsSource = null;
+        this.unloadedTotals = null;
     }
     public void setType(MealType type) { this.type = type; }
 
     // Food item management
-    public void addFoodItem(FoodItem foodItem) {
+    public synchronized void addFoodItem(FoodItem foodItem) {
         if (foodItem != null) {
-            this.foodItems.add(foodItem);
+            List<FoodItem> updated = new ArrayList<>(foods());
+            updated.add(foodItem);
+            foodItems = Collections.unmodifiableList(updated);
+        }
+    }
+
+    public synchronized void removeFoodItem(FoodItem foodItem) {
+        List<FoodItem> updated = new ArrayList<>(foods());
+        if (updated.remove(foodItem)) {
+            foodItems = Collections.unmodifiableList(updated);
         }
     }
 
-    public void removeFoodItem(FoodItem foodItem) {
-        this.foodItems.remove(foodItem);
+    public synchronized void removeFoodItem(EntityId foodItemId) {
+        List<FoodItem> updated = new ArrayList<>(foods());
+        if (updated.removeIf(item -> item.getId().equals(foodItemId))) {
+            foodItems = Collections.unmodifiableList(updated);
+        }
+    }
+
+    /**
+     * @return the source the food list will be loaded from, or null once it is loaded
+     */
+    @JsonIgnore
+    public synchronized Supplier<List<FoodItem>> getUnloadedFoodItems() {
+        return foodItems == null ? foodItemsSource : null;
+    }
+
+    private synchronized List<FoodItem> foods() {
+        if (foodItems == null) {
+            foodItems = immutableCopy(foodItemsSource.get());
+            foodItemsSource = null;
+            unloadedTotals = null;
+        }
+        return foodItems;
     }
 
-    public void removeFoodItem(String foodItemId) {
-        this.foodItems.removeIf(item -> item.getId().equals(foodItemId));
+    private static List<FoodItem> immutableCopy(List<FoodItem> foods) {
+        return foods != null ? Collections.unmodifiableList(new ArrayList<>(foods)) : List.of();
     }
 
     // Calculated nutrition totals
+    @JsonIgnore
+    public synchronized MealTotals getTotals() {
+        if (foodItems == null && unloadedTotals != null) return unloadedTotals;
+        return MealTotals.of(foods());
+    }
+
     public double getTotalCalories() {
-        return foodItems.stream().mapToDouble(FoodItem::getCalories).sum();
+        return getTotals().getCalories();
     }
 
     public double getTotalProtein() {
-        return foodItems.stream().mapToDouble(FoodItem::getProtein).sum();
+        return getTotals().getProtein();
     }
 
     public double getTotalCarbs() {
-        return foodItems.stream().mapToDouble(FoodItem::getCarbs).sum();
+        return getTotals().getCarbs();
     }
 
     public double getTotalFat() {
-        return foodItems.stream().mapToDouble(FoodItem::getFat).sum();
+        return getTotals().getFat();
     }
 
     public double getTotalFiber() {
-        return foodItems.stream().mapToDouble(FoodItem::getFiber).sum();
+        return getTotals().getFiber();
     }
 
     public int getFoodItemCount() {
-        return foodItems.size();
+        return getTotals().getItemCount();
     }
 
     @Override
@@ -115,7 +179,7 @@ public class Meal {
     @Override
     public String toString() {
         return String.format("%s (%s) - %d items, %.0f cal", 
-                           name, type.getDisplayName(), foodItems.size(), getTotalCalories());
+                           name, type.getDisplayName(), getFoodItemCount(), getTotalCalories());
     }
 
     // Builder pattern for easy construction
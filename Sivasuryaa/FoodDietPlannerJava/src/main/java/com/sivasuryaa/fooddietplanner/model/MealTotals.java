@@ -0,0 +1,45 @@
+package com.sivasuryaa.fooddietplanner.model;
+
+import java.util.List;
+
+/**
+ * Nutrient totals and item count of one meal, kept so a meal can answer them
+ * without loading its food list
+ */
+public final class MealTotals {
+    private final double calories;
+    private final double protein;
+    private final double carbs;
+    private final double fat;
+    private final double fiber;
+    private final int itemCount;
+
+    public MealTotals(double calories, double protein, double carbs, double fat, double fiber, int itemCount) {
+        this.calories = calories;
+        this.protein = protein;
+        this.carbs = carbs;
+        this.fat = fat;
+        this.fiber = fiber;
+        this.itemCount = itemCount;
+    }
+
+    public static MealTotals of(List<FoodItem> foods) {
+        double calories = 0, protein = 0, carbs = 0, fat = 0, fiber = 0;
+        for (FoodItem food : foods) {
+            calories += food.getCalories();
+            protein += food.getProtein();
+            carbs += food.getCarbs();
+            fat += food.getFat();
+            fiber += food.getFiber();
+        }
+        return new MealTotals(calories, protein, carbs, fat, fiber, foods.size());
+    }
+
+    // Getters
+    public double getCalories() { return calories; }
+    public double getProtein() { return protein; }
+    public double getCarbs() { return carbs; }
+    public double getFat() { return fat; }
+    public double getFiber() { return fiber; }
+    public int getItemCount() { return itemCount; }
+}
@@ -34,7 +34,7 @@ public enum MealType {
         return colorHex;
     }
 
-    @JsonCreator
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
     public static MealType fromString(@JsonProperty("mealType") String mealType) {
         for (MealType mt : MealType.values()) {
             if (mt.name().equalsIgnoreCase(mealType) || 
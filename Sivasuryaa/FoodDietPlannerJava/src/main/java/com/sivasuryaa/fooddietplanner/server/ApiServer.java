@@ -0,0 +1,443 @@
+package com.sivasuryaa.fooddietplanner.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sivasuryaa.fooddietplanner.model.ActivityLevel;
+import com.sivasuryaa.fooddietplanner.model.DietGoal;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.UserProfile;
+import com.sivasuryaa.fooddietplanner.service.DietPlannerService;
+import com.sivasuryaa.fooddietplanner.service.MealPage;
+import com.sivasuryaa.fooddietplanner.storage.StorageFormat;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Headless mode: serves the profile, meals, food search and daily totals of a
+ * {@link DietPlannerService} as JSON over HTTP, for other applications to use
+ * instead of the desktop window.
+ *
+ * Built on the JDK's {@link HttpServer}. Every request runs on its own virtual
+ * thread, so requests blocked on storage or on the service's lock cost no
+ * platform thread and the server needs no pool size tuning.
+ *
+ * The JDK server writes the headers and the body of a response separately and
+ * by default leaves Nagle's algorithm on, so on kept-alive connections each
+ * response waits for the client's delayed acknowledgement, capping a client at
+ * about 25 requests per second. Unless the {@code sun.net.httpserver.nodelay}
+ * property is already set, it is turned on before the first server is created.
+ *
+ * <pre>
+ * GET    /api/profile
+ * PUT    /api/profile
+ * GET    /api/meals?cursor=&amp;limit=     one page, newest first
+ * GET    /api/meals?date=yyyy-MM-dd      the meals of one day
+ * POST   /api/meals
+ * GET    /api/meals/{id}
+ * PUT    /api/meals/{id}
+ * DELETE /api/meals/{id}
+ * GET    /api/foods?q=&amp;offset=&amp;limit=  foods by name
+ * GET    /api/totals/{yyyy-MM-dd}
+ * </pre>
+ *
+ * Meals and foods use the same JSON as the data files. A meal needs a name, a
+ * {@code dateTime} and a {@code type}; its id is assigned by the server, and an
+ * id in the body is ignored. A profile needs every field but the name and
+ * gender, within the ranges the profile screen offers. Invalid input is
+ * answered with 400 and a JSON {@code error} message.
+ */
+public class ApiServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final String DEFAULT_HOST = "127.0.0.1";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    // Connections waiting to be accepted, enough for bursts from many clients
+    private static final int BACKLOG = 1024;
+    private static final int STOP_DELAY_SECONDS = 2;
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    // Profile ranges, as offered by the profile screen
+    private static final int MIN_AGE = 13;
+    private static final int MAX_AGE = 100;
+    private static final double MIN_WEIGHT_KG = 30;
+    private static final double MAX_WEIGHT_KG = 200;
+    private static final double MIN_HEIGHT_CM = 120;
+    private static final double MAX_HEIGHT_CM = 220;
+    private static final List<String> REQUIRED_PROFILE_FIELDS =
+        List.of("age", "weight", "height", "targetWeight", "activityLevel", "dietGoal");
+
+    static {
+        // Read once, when the JDK creates its first server
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    private final DietPlannerService service;
+    private final ObjectMapper objectMapper = createMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ApiServer(DietPlannerService service, InetSocketAddress address) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(address, BACKLOG);
+        server.createContext("/", exchange -> handle(exchange, (ignored, id) -> {
+            throw new ApiError(404, "Not found: " + exchange.getRequestURI().getPath());
+        }));
+        server.createContext("/api/profile", exchange -> handle(exchange, this::profile));
+        server.createContext("/api/meals", exchange -> handle(exchange, this::meals));
+        server.createContext("/api/foods", exchange -> handle(exchange, this::foods));
+        server.createContext("/api/totals", exchange -> handle(exchange, this::totals));
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the address the server listens on, with the actual port if port 0 was asked for
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stop accepting requests and give those in progress a moment to finish;
+     * the service is left for the caller to shut down
+     */
+    public void stop() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+    }
+
+    /**
+     * Run the server on the data directory until the process is stopped. This is
+     * its own entry point, as the launcher refuses to start a JavaFX application
+     * class without the JavaFX runtime:
+     * {@code java -cp food-diet-planner.jar com.sivasuryaa.fooddietplanner.server.ApiServer}
+     * @param args {@code --port=N} and {@code --host=name}; other arguments are ignored
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String host = DEFAULT_HOST;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--host=")) {
+                host = arg.substring("--host=".length());
+            }
+        }
+
+        DietPlannerService service = new DietPlannerService();
+        service.whenReady().join();
+        ApiServer server = new ApiServer(service, new InetSocketAddress(host, port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            service.shutdown();
+        }, "api-server-shutdown"));
+        server.start();
+        System.out.println("Food Diet Planner API listening on http://" + host + ":" + server.getAddress().getPort());
+    }
+
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = StorageFormat.JSON.createMapper();
+        // Meals and foods are mostly decimal numbers, which this writes faster
+        mapper.getFactory().enable(StreamWriteFeature.USE_FAST_DOUBLE_WRITER.mappedFeature());
+        return mapper;
+    }
+
+    // Routes; each returns the value to send as JSON, or null for an empty 204
+
+    private Object profile(HttpExchange exchange, String id) throws IOException {
+        requireNoId(id);
+        return switch (exchange.getRequestMethod()) {
+            case "GET" -> service.getUserProfile();
+            case "PUT" -> {
+                UserProfile profile = readProfile(exchange);
+                service.updateUserProfile(profile);
+                yield profile;
+            }
+            default -> throw new ApiError(405, "Method not allowed");
+        };
+    }
+
+    private Object meals(HttpExchange exchange, String id) throws IOException {
+        if (id == null) {
+            return switch (exchange.getRequestMethod()) {
+                case "GET" -> listMeals(queryParameters(exchange));
+                case "POST" -> {
+                    Meal meal = readMeal(exchange, null);
+                    service.addMeal(meal);
+                    exchange.getResponseHeaders().set("Location", "/api/meals/" + meal.getId());
+                    yield meal;
+                }
+                default -> throw new ApiError(405, "Method not allowed");
+            };
+        }
+
+        EntityId mealId = EntityId.parse(id);
+        return switch (exchange.getRequestMethod()) {
+            case "GET" -> requireMeal(mealId, id);
+            case "PUT" -> {
+                Meal meal = readMeal(exchange, mealId);
+                if (!service.updateExistingMeal(meal)) {
+                    throw new ApiError(404, "No meal " + id);
+                }
+                yield meal;
+            }
+            case "DELETE" -> {
+                requireMeal(mealId, id);
+                service.deleteMeal(mealId);
+                yield null;
+            }
+            default -> throw new ApiError(405, "Method not allowed");
+        };
+    }
+
+    private Object listMeals(Map<String, String> parameters) {
+        String date = parameters.get("date");
+        if (date != null) {
+            return service.getMealsForDate(parseDate(date));
+        }
+        MealPage page = service.getMeals(parameters.get("cursor"), intParameter(parameters, "limit", DEFAULT_PAGE_SIZE));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("meals", page.getMeals());
+        body.put("nextCursor", page.getNextCursor());
+        return body;
+    }
+
+    private Object foods(HttpExchange exchange, String id) {
+        requireNoId(id);
+        requireGet(exchange);
+        Map<String, String> parameters = queryParameters(exchange);
+        return service.searchFood(parameters.getOrDefault("q", ""),
+            intParameter(parameters, "offset", 0),
+            intParameter(parameters, "limit", DEFAULT_PAGE_SIZE));
+    }
+
+    private Object totals(HttpExchange exchange, String date) {
+        requireGet(exchange);
+        if (date == null) {
+            throw new ApiError(404, "Expected /api/totals/{date}");
+        }
+        return service.getTotalsForDate(parseDate(date));
+    }
+
+    // Request handling
+
+    @FunctionalInterface
+    private interface Route {
+        /**
+         * @param id the path segment after the route's context, or null if there is none
+         */
+        Object respond(HttpExchange exchange, String id) throws IOException;
+    }
+
+    /**
+     * Signals a response other than 200, with the message as the error text
+     */
+    private static class ApiError extends RuntimeException {
+        private final int status;
+
+        ApiError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        try (exchange) {
+            int status = "POST".equals(exchange.getRequestMethod()) ? 201 : 200;
+            Object body;
+            try {
+                body = route.respond(exchange, pathId(exchange));
+            } catch (ApiError e) {
+                status = e.status;
+                body = Map.of("error", e.getMessage());
+            } catch (IllegalArgumentException | DateTimeException e) {
+                status = 400;
+                body = Map.of("error", String.valueOf(e.getMessage()));
+            } catch (RuntimeException e) {
+                System.err.println("Failed to handle " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI() + ": " + e);
+                status = 500;
+                body = Map.of("error", "Internal error");
+            }
+            send(exchange, status, body);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private <T> T readBody(HttpExchange exchange, Class<T> type) throws IOException {
+        byte[] bytes = exchange.getRequestBody().readAllBytes();
+        try {
+            T value = objectMapper.readValue(bytes, type);
+            if (value == null) {
+                throw new ApiError(400, "Expected a JSON body");
+            }
+            return value;
+        } catch (JsonProcessingException e) {
+            throw new ApiError(400, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Read a meal from the body, giving it the id from the path, or a new one if
+     * the meal is being created
+     */
+    private Meal readMeal(HttpExchange exchange, EntityId mealId) throws IOException {
+        Meal meal = readBody(exchange, Meal.class);
+        if (meal.getName() == null || meal.getName().isBlank()) {
+            throw new ApiError(400, "A meal needs a name");
+        }
+        if (meal.getDateTime() == null) {
+            throw new ApiError(400, "A meal needs a dateTime");
+        }
+        if (meal.getType() == null) {
+            throw new ApiError(400, "A meal needs a type");
+        }
+        return new Meal(mealId != null ? mealId : EntityId.generate(), meal.getName(), meal.getDateTime(),
+            meal.getFoodItems(), meal.getType());
+    }
+
+    private Meal requireMeal(EntityId mealId, String id) {
+        Meal meal = service.getMeal(mealId);
+        if (meal == null) {
+            throw new ApiError(404, "No meal " + id);
+        }
+        return meal;
+    }
+
+    /**
+     * Read a profile from the body; the model fills in missing fields and
+     * unknown choices with defaults, so those are checked on the JSON first
+     */
+    private UserProfile readProfile(HttpExchange exchange) throws IOException {
+        JsonNode body = readBody(exchange, JsonNode.class);
+        for (String field : REQUIRED_PROFILE_FIELDS) {
+            if (!body.hasNonNull(field)) {
+                throw new ApiError(400, "A profile needs " + field);
+            }
+        }
+        requireChoice(body, "activityLevel", ActivityLevel.values());
+        requireChoice(body, "dietGoal", DietGoal.values());
+        UserProfile profile;
+        try {
+            profile = objectMapper.treeToValue(body, UserProfile.class);
+        } catch (JsonProcessingException e) {
+            throw new ApiError(400, "Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (profile.getAge() < MIN_AGE || profile.getAge() > MAX_AGE) {
+            throw new ApiError(400, "Age must be from " + MIN_AGE + " to " + MAX_AGE);
+        }
+        requireRange("weight", profile.getWeight(), MIN_WEIGHT_KG, MAX_WEIGHT_KG);
+        requireRange("height", profile.getHeight(), MIN_HEIGHT_CM, MAX_HEIGHT_CM);
+        requireRange("targetWeight", profile.getTargetWeight(), MIN_WEIGHT_KG, MAX_WEIGHT_KG);
+        return profile;
+    }
+
+    /**
+     * Accepts the names and display names the model's own parsing accepts
+     */
+    private static void requireChoice(JsonNode body, String field, Enum<?>[] choices) {
+        String value = body.get(field).asText();
+        for (Enum<?> choice : choices) {
+            if (choice.name().equalsIgnoreCase(value) || choice.toString().equalsIgnoreCase(value)) return;
+        }
+        throw new ApiError(400, field + " must be one of "
+            + Arrays.stream(choices).map(Enum::name).collect(Collectors.joining(", ")) + ", got " + value);
+    }
+
+    private static void requireRange(String field, double value, double min, double max) {
+        // Also rejects NaN
+        if (!(value >= min && value <= max)) {
+            throw new ApiError(400, field + " must be from " + min + " to " + max + ", got " + value);
+        }
+    }
+
+    private static String pathId(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String rest = path.substring(exchange.getHttpContext().getPath().length());
+        if (rest.isEmpty() || rest.equals("/")) return null;
+        if (rest.charAt(0) != '/' || rest.indexOf('/', 1) >= 0) {
+            throw new ApiError(404, "Not found: " + path);
+        }
+        return rest.substring(1);
+    }
+
+    private static void requireNoId(String id) {
+        if (id != null) {
+            throw new ApiError(404, "Not found: " + id);
+        }
+    }
+
+    private static void requireGet(HttpExchange exchange) {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            throw new ApiError(405, "Method not allowed");
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) return parameters;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals >= 0 ? pair.substring(0, equals) : pair;
+            String value = equals >= 0 ? pair.substring(equals + 1) : "";
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiError(400, "Parameter " + name + " must be a number, got " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ApiError(400, "Expected a date as yyyy-MM-dd, got " + value);
+        }
+    }
+}
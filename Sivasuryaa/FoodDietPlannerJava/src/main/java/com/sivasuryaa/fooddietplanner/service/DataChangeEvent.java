@@ -0,0 +1,148 @@
+package com.sivasuryaa.fooddietplanner.service;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.UserProfile;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One change to the data of a {@link DietPlannerService}. A bulk change is a
+ * single event listing everything it touched.
+ */
+public final class DataChangeEvent {
+
+    public enum Type {
+        /** One or more meals were added */
+        MEAL_ADDED,
+        MEAL_UPDATED,
+        /** One or more meals were deleted */
+        MEAL_DELETED,
+        /** One or more foods were added or edited */
+        FOOD_SAVED,
+        FOOD_DELETED,
+        PROFILE_CHANGED,
+        /** Anything may have changed: data was reset, restored or changed by another instance */
+        RELOADED
+    }
+
+    private final Type type;
+    private final List<Meal> meals;
+    private final List<LocalDate> dates;
+    private final List<FoodItem> foods;
+    private final EntityId foodId;
+    private final UserProfile profile;
+
+    private DataChangeEvent(Type type, List<Meal> meals, List<LocalDate> dates, List<FoodItem> foods,
+                            EntityId foodId, UserProfile profile) {
+        this.type = type;
+        this.meals = meals;
+        this.dates = dates;
+        this.foods = foods;
+        this.foodId = foodId;
+        this.profile = profile;
+    }
+
+    static DataChangeEvent mealsAdded(List<Meal> meals) {
+        return mealEvent(Type.MEAL_ADDED, meals, datesOf(meals));
+    }
+
+    /**
+     * @param previous the meal as it was stored before, or null if it was not
+     */
+    static DataChangeEvent mealUpdated(Meal meal, Meal previous) {
+        LocalDate date = dateOf(meal);
+        if (previous == null || dateOf(previous).equals(date)) {
+            return mealEvent(Type.MEAL_UPDATED, List.of(meal), List.of(date));
+        }
+        return mealEvent(Type.MEAL_UPDATED, List.of(meal), List.of(dateOf(previous), date));
+    }
+
+    static DataChangeEvent mealsDeleted(List<Meal> meals) {
+        return mealEvent(Type.MEAL_DELETED, meals, datesOf(meals));
+    }
+
+    static DataChangeEvent foodsSaved(List<FoodItem> foods) {
+        return new DataChangeEvent(Type.FOOD_SAVED, List.of(), List.of(), List.copyOf(foods), null, null);
+    }
+
+    static DataChangeEvent foodDeleted(EntityId foodId) {
+        return new DataChangeEvent(Type.FOOD_DELETED, List.of(), List.of(), List.of(), foodId, null);
+    }
+
+    static DataChangeEvent profileChanged(UserProfile profile) {
+        return new DataChangeEvent(Type.PROFILE_CHANGED, List.of(), List.of(), List.of(), null, profile);
+    }
+
+    static DataChangeEvent reloaded() {
+        return new DataChangeEvent(Type.RELOADED, List.of(), List.of(), List.of(), null, null);
+    }
+
+    private static DataChangeEvent mealEvent(Type type, List<Meal> meals, List<LocalDate> dates) {
+        return new DataChangeEvent(type, List.copyOf(meals), dates, List.of(), null, null);
+    }
+
+    private static List<LocalDate> datesOf(List<Meal> meals) {
+        Set<LocalDate> dates = new LinkedHashSet<>();
+        for (Meal meal : meals) {
+            dates.add(dateOf(meal));
+        }
+        return List.copyOf(dates);
+    }
+
+    private static LocalDate dateOf(Meal meal) {
+        return meal.getDateTime().toLocalDate();
+    }
+
+    // Getters
+    public Type getType() { return type; }
+
+    /**
+     * @return the meals as stored now, or as they were before they were deleted;
+     *         empty for other changes
+     */
+    public List<Meal> getMeals() { return meals; }
+
+    /**
+     * @return the dates whose meals changed, in the order the meals were given;
+     *         an update that moved a meal lists its former date first. Empty for
+     *         other changes.
+     */
+    public List<LocalDate> getDates() { return dates; }
+
+    /**
+     * @return the saved foods, or an empty list for other changes
+     */
+    public List<FoodItem> getFoods() { return foods; }
+
+    /**
+     * @return the id of the deleted food, or null for other changes
+     */
+    public EntityId getFoodId() { return foodId; }
+
+    /**
+     * @return the new profile, or null for other changes
+     */
+    public UserProfile getProfile() { return profile; }
+
+    /**
+     * @return true if the meals of the date may have changed
+     */
+    public boolean affectsDate(LocalDate date) {
+        return type == Type.RELOADED || dates.contains(date);
+    }
+
+    @Override
+    public String toString() {
+        if (meals.size() == 1) return type + " " + meals.get(0).getId() + " " + dates;
+        if (!meals.isEmpty()) return type + " " + meals.size() + " meals on " + dates.size() + " dates";
+        if (foods.size() == 1) return type + " " + foods.get(0).getId();
+        if (!foods.isEmpty()) return type + " " + foods.size() + " foods";
+        if (foodId != null) return type + " " + foodId;
+        return type.toString();
+    }
+}
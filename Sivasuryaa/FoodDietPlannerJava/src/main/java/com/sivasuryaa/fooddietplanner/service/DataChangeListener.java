@@ -0,0 +1,17 @@
+package com.sivasuryaa.fooddietplanner.service;
+
+/**
+ * Receives the changes made through a {@link DietPlannerService}, so views and
+ * caches can apply them instead of querying everything again
+ */
+@FunctionalInterface
+public interface DataChangeListener {
+
+    /**
+     * Called on the thread that made the change, after it is stored and in the
+     * order changes were made. Queries from here see the changed data; further
+     * changes wait until the listeners return, so hand slow work to another thread.
+     * @param event what changed
+     */
+    void onDataChanged(DataChangeEvent event);
+}
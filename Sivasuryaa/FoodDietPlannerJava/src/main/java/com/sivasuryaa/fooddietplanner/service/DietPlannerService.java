@@ -1,41 +1,118 @@
 package com.sivasuryaa.fooddietplanner.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.sivasuryaa.fooddietplanner.model.*;
+import com.sivasuryaa.fooddietplanner.storage.BackupStore;
+import com.sivasuryaa.fooddietplanner.storage.FoodCatalog;
+import com.sivasuryaa.fooddietplanner.storage.MealLoadListener;
+import com.sivasuryaa.fooddietplanner.storage.MealRepository;
+import com.sivasuryaa.fooddietplanner.storage.SnapshotFile;
+import com.sivasuryaa.fooddietplanner.storage.StorageBackend;
+import com.sivasuryaa.fooddietplanner.storage.StorageFormat;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Main service class for managing diet planning data and operations
+ * Main service class for managing diet planning data and operations.
+ *
+ * Safe to use from any thread: queries share a read lock and run concurrently,
+ * changes take the write lock and are serialized, so search, analytics and
+ * dashboard aggregation can run in the background while the UI edits data.
  */
 public class DietPlannerService {
-    private static final String DATA_DIR = System.getProperty("user.home") + "/.fooddietplanner";
-    private static final String PROFILE_FILE = DATA_DIR + "/profile.json";
-    private static final String MEALS_FILE = DATA_DIR + "/meals.json";
-    private static final String FOODS_FILE = DATA_DIR + "/foods.json";
-
-    private final ObjectMapper objectMapper;
-    private UserProfile userProfile;
-    private List<Meal> meals;
-    private List<FoodItem> foodDatabase;
+    /** Largest page {@link #getMeals(String, int)} and {@link #searchFood(String, int, int)} return */
+    public static final int MAX_PAGE_SIZE = 1000;
 
+    private static final String DATA_DIR = System.getProperty("user.home") + "/.fooddietplanner";
+    private static final String PROFILE_NAME = "profile";
+    private static final String MEALS_NAME = "meals";
+    private static final String FOODS_NAME = "foods";
+    private static final int RECENT_MONTHS = 4;
+    private static final String DASHBOARD_FILE = DATA_DIR + "/dashboard.json";
+    private static final int SNAPSHOT_DAYS = 7;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final TaskScheduler scheduler = new TaskScheduler();
+    private final MealIngest mealIngest = new MealIngest(this);
+    private final CompletableFuture<Void> ready;
+    private final BackupStore backups;
+    // Reentrant, as queries build on each other and changes on queries
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<DataChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile StorageBackend storage;
+    private volatile UserProfile userProfile;
+    private volatile SnapshotFile<DashboardSnapshot> dashboardFile;
+    private volatile DashboardSnapshot dashboardSnapshot;
+
+    /**
+     * Create the service and start loading data in the background; use
+     * {@link #whenReady()} before calling anything else
+     */
     public DietPlannerService() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-        
         // Initialize data directory
         initializeDataDirectory();
-        
+        this.backups = BackupStore.forDirectory(Path.of(DATA_DIR));
+
         // Load existing data or create defaults
-        loadAllData();
+        this.ready = loadAllData();
+    }
+
+    /**
+     * @return completes once the profile, meals and food database are loaded, or
+     *         fails if they could not be; the service can then only be shut down
+     */
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    /**
+     * @return the scheduler for background work, shared by the whole application
+     *         and shut down with the service
+     */
+    public TaskScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return the pipeline for meal changes from many threads at once; changes
+     *         made through it are applied in the background, in batches
+     */
+    public MealIngest getMealIngest() {
+        return mealIngest;
+    }
+
+    /**
+     * Register a listener for every change made through this service. Changes
+     * another instance sharing the data directory saved are reported as
+     * {@link DataChangeEvent.Type#RELOADED}, from a background thread.
+     */
+    public void addChangeListener(DataChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(DataChangeListener listener) {
+        changeListeners.remove(listener);
     }
 
     private void initializeDataDirectory() {
@@ -47,43 +124,190 @@ public class DietPlannerService {
 
     // User Profile Management
     public UserProfile getUserProfile() {
-        return userProfile;
+        return read(() -> userProfile);
     }
 
     public void updateUserProfile(UserProfile profile) {
-        this.userProfile = profile;
-        saveUserProfile();
+        change(() -> {
+            this.userProfile = profile;
+            saveUserProfile();
+            return DataChangeEvent.profileChanged(profile);
+        });
     }
 
     // Meal Management
     public List<Meal> getAllMeals() {
-        return new ArrayList<>(meals);
+        return read(() -> storage.meals().getAllMeals());
+    }
+
+    /**
+     * @return the meal with the given id, or null if there is none
+     */
+    public Meal getMeal(EntityId mealId) {
+        return read(() -> storage.meals().findById(mealId));
+    }
+
+    /**
+     * One page of the meal history, newest first; only the months the page
+     * reaches into are read
+     * @param cursor null for the first page, otherwise the previous page's {@link MealPage#getNextCursor()}
+     * @param limit number of meals per page, from 1 to {@link #MAX_PAGE_SIZE}
+     * @throws IllegalArgumentException for a malformed cursor or a limit out of range
+     */
+    public MealPage getMeals(String cursor, int limit) {
+        checkPageSize(limit);
+        LocalDateTime dateTime = cursor != null ? MealPage.dateTimeOf(cursor) : null;
+        EntityId mealId = cursor != null ? MealPage.mealIdOf(cursor) : null;
+        // One meal more than asked shows whether another page follows
+        List<Meal> meals = read(() -> storage.meals().getMealsBefore(dateTime, mealId, limit + 1));
+        if (meals.size() <= limit) {
+            return new MealPage(meals, null);
+        }
+        List<Meal> page = meals.subList(0, limit);
+        return new MealPage(page, MealPage.cursorAfter(page.get(limit - 1)));
+    }
+
+    /**
+     * Meals within the inclusive date range, oldest first, read one month at a
+     * time as the stream is consumed. Each month is read when the stream reaches
+     * it, so changes made meanwhile to months not yet reached are included.
+     */
+    public Stream<Meal> streamMealsBetween(LocalDate from, LocalDate to) {
+        YearMonth last = YearMonth.from(to);
+        return Stream.iterate(YearMonth.from(from), month -> !month.isAfter(last), month -> month.plusMonths(1))
+            .flatMap(month -> {
+                LocalDate start = month.atDay(1).isBefore(from) ? from : month.atDay(1);
+                LocalDate end = month.atEndOfMonth().isAfter(to) ? to : month.atEndOfMonth();
+                List<Meal> meals = new ArrayList<>(getMealsBetween(start, end));
+                meals.sort(MealRepository.NEWEST_FIRST.reversed());
+                return meals.stream();
+            });
     }
 
     public void addMeal(Meal meal) {
-        meals.add(meal);
-        saveMeals();
+        change(() -> {
+            storage.meals().add(meal);
+            return DataChangeEvent.mealsAdded(List.of(meal));
+        });
     }
 
-    public void updateMeal(Meal meal) {
-        meals.removeIf(m -> m.getId().equals(meal.getId()));
-        meals.add(meal);
-        saveMeals();
+    /**
+     * Add many meals as one change: they are stored with a single write and
+     * reported in a single event
+     */
+    public void addMeals(List<Meal> meals) {
+        if (meals.isEmpty()) return;
+        change(() -> {
+            storage.meals().addAll(meals);
+            return DataChangeEvent.mealsAdded(meals);
+        });
     }
 
-    public void deleteMeal(String mealId) {
-        meals.removeIf(m -> m.getId().equals(mealId));
-        saveMeals();
+    public void updateMeal(Meal meal) {
+        change(() -> {
+            Meal previous = storage.meals().findById(meal.getId());
+            storage.meals().update(meal);
+            return DataChangeEvent.mealUpdated(meal, previous);
+        });
+    }
+
+    /**
+     * Replace a meal only if it is still stored, checked under the write lock so
+     * a concurrent delete cannot turn the update into an insert
+     * @return false if there is no meal with the id; nothing is changed then
+     */
+    public boolean updateExistingMeal(Meal meal) {
+        boolean[] updated = new boolean[1];
+        change(() -> {
+            Meal previous = storage.meals().findById(meal.getId());
+            if (previous == null) return null;
+            storage.meals().update(meal);
+            updated[0] = true;
+            return DataChangeEvent.mealUpdated(meal, previous);
+        });
+        return updated[0];
+    }
+
+    public void deleteMeal(EntityId mealId) {
+        change(() -> {
+            Meal previous = storage.meals().findById(mealId);
+            if (previous == null) return null;
+            storage.meals().delete(mealId);
+            return DataChangeEvent.mealsDeleted(List.of(previous));
+        });
     }
 
     public void deleteMeal(Meal meal) {
         deleteMeal(meal.getId());
     }
 
+    /**
+     * Delete every meal the filter accepts, as one change
+     * @return the number of meals deleted
+     */
+    public int deleteMeals(Predicate<Meal> filter) {
+        return deleteMatching(() -> storage.meals().getAllMeals(), filter);
+    }
+
+    /**
+     * Delete the meals within the inclusive date range, as one change; only the
+     * months the range covers are read
+     * @return the number of meals deleted
+     */
+    public int deleteMealsBetween(LocalDate from, LocalDate to) {
+        return deleteMatching(() -> storage.meals().getMealsBetween(from, to), meal -> true);
+    }
+
+    /**
+     * Delete the meals with the given ids as one change; ids of meals that do not
+     * exist are ignored
+     * @return the number of meals deleted
+     */
+    public int deleteMealsById(Collection<EntityId> mealIds) {
+        return deleteMatching(() -> {
+            List<Meal> meals = new ArrayList<>();
+            for (EntityId mealId : mealIds) {
+                Meal meal = storage.meals().findById(mealId);
+                if (meal != null) {
+                    meals.add(meal);
+                }
+            }
+            return meals;
+        }, meal -> true);
+    }
+
+    private int deleteMatching(Supplier<List<Meal>> candidates, Predicate<Meal> filter) {
+        int[] deleted = new int[1];
+        change(() -> {
+            List<Meal> matching = new ArrayList<>();
+            for (Meal meal : candidates.get()) {
+                if (filter.test(meal)) {
+                    matching.add(meal);
+                }
+            }
+            if (matching.isEmpty()) return null;
+            storage.meals().deleteAll(matching);
+            deleted[0] = matching.size();
+            return DataChangeEvent.mealsDeleted(matching);
+        });
+        return deleted[0];
+    }
+
     public List<Meal> getMealsForDate(LocalDate date) {
-        return meals.stream()
-                   .filter(meal -> meal.getDateTime().toLocalDate().equals(date))
-                   .collect(Collectors.toList());
+        return read(() -> storage.meals().getMealsForDate(date));
+    }
+
+    public List<Meal> getMealsBetween(LocalDate from, LocalDate to) {
+        return read(() -> storage.meals().getMealsBetween(from, to));
+    }
+
+    /**
+     * Stream the recent meal history into memory on a background thread, newest month first
+     * @param listener notified when today's meals and each month become available
+     */
+    public CompletableFuture<Void> preloadRecentMeals(MealLoadListener listener) {
+        // Only warms the store's cache, so it takes no lock and never holds up changes
+        return scheduler.execute(TaskScheduler.Lane.REFRESH, () -> storage.meals().preload(RECENT_MONTHS, listener));
     }
 
     public List<Meal> getMealsForToday() {
@@ -92,79 +316,110 @@ public class DietPlannerService {
 
     // Food Database Management
     public List<FoodItem> getFoodDatabase() {
-        return new ArrayList<>(foodDatabase);
+        return read(() -> storage.foods().findAll());
     }
 
     public void addFoodItem(FoodItem foodItem) {
-        foodDatabase.add(foodItem);
-        saveFoodDatabase();
+        change(() -> {
+            storage.foods().save(foodItem);
+            return DataChangeEvent.foodsSaved(List.of(foodItem));
+        });
     }
 
     public void updateFoodItem(FoodItem foodItem) {
-        foodDatabase.removeIf(f -> f.getId().equals(foodItem.getId()));
-        foodDatabase.add(foodItem);
-        saveFoodDatabase();
+        addFoodItem(foodItem);
+    }
+
+    /**
+     * Add or replace many foods as one change, stored with a single write
+     */
+    public void upsertFoodItems(List<FoodItem> foodItems) {
+        if (foodItems.isEmpty()) return;
+        change(() -> {
+            storage.foods().saveAll(foodItems);
+            return DataChangeEvent.foodsSaved(foodItems);
+        });
     }
 
-    public void deleteFoodItem(String foodItemId) {
-        foodDatabase.removeIf(f -> f.getId().equals(foodItemId));
-        saveFoodDatabase();
+    public void deleteFoodItem(EntityId foodItemId) {
+        change(() -> {
+            storage.foods().delete(foodItemId);
+            return DataChangeEvent.foodDeleted(foodItemId);
+        });
     }
 
     public List<FoodItem> searchFood(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            return new ArrayList<>(foodDatabase);
+        return read(() -> storage.foods().search(query));
+    }
+
+    /**
+     * One page of the foods whose name or category contains the query, ordered
+     * by name; a blank query pages through every food
+     * @param offset number of matching foods to skip
+     * @param limit number of foods per page, from 1 to {@link #MAX_PAGE_SIZE}
+     * @throws IllegalArgumentException for a negative offset or a limit out of range
+     */
+    public List<FoodItem> searchFood(String query, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative, got " + offset);
         }
-        
-        String lowercaseQuery = query.toLowerCase().trim();
-        return foodDatabase.stream()
-                          .filter(food -> 
-                              food.getName().toLowerCase().contains(lowercaseQuery) ||
-                              food.getCategory().getDisplayName().toLowerCase().contains(lowercaseQuery))
-                          .collect(Collectors.toList());
+        checkPageSize(limit);
+        return read(() -> storage.foods().search(query, offset, limit));
     }
 
     public List<FoodItem> getFoodsByCategory(FoodCategory category) {
-        return foodDatabase.stream()
-                          .filter(food -> food.getCategory() == category)
-                          .collect(Collectors.toList());
+        return read(() -> storage.foods().findByCategory(category));
     }
 
     // Statistics and Analytics
+    /**
+     * Nutrient totals for a date. While no meal has changed since the dashboard
+     * snapshot was taken, covered dates are answered from it without loading meals.
+     */
+    public DailyTotals getTotalsForDate(LocalDate date) {
+        return read(() -> {
+            DashboardSnapshot snapshot = dashboardSnapshot;
+            if (snapshot != null && snapshot.isValidFor(storage.meals().getRevision())) {
+                DailyTotals totals = snapshot.getTotals(date);
+                if (totals != null) return totals;
+            }
+            return DailyTotals.of(date, getMealsForDate(date));
+        });
+    }
+
     public double getTotalCaloriesToday() {
-        return getMealsForToday().stream()
-                                .mapToDouble(Meal::getTotalCalories)
-                                .sum();
+        return getTotalsForDate(LocalDate.now()).getCalories();
     }
 
     public double getTotalProteinToday() {
-        return getMealsForToday().stream()
-                                .mapToDouble(Meal::getTotalProtein)
-                                .sum();
+        return getTotalsForDate(LocalDate.now()).getProtein();
     }
 
     public double getTotalCarbsToday() {
-        return getMealsForToday().stream()
-                                .mapToDouble(Meal::getTotalCarbs)
-                                .sum();
+        return getTotalsForDate(LocalDate.now()).getCarbs();
     }
 
     public double getTotalFatToday() {
-        return getMealsForToday().stream()
-                                .mapToDouble(Meal::getTotalFat)
-                                .sum();
+        return getTotalsForDate(LocalDate.now()).getFat();
     }
 
     public double getCalorieProgress() {
-        double consumed = getTotalCaloriesToday();
-        double goal = userProfile.getDailyCalorieGoal();
-        return Math.min(consumed / goal, 1.0);
+        return read(() -> {
+            double consumed = getTotalCaloriesToday();
+            double goal = userProfile.getDailyCalorieGoal();
+            return Math.min(consumed / goal, 1.0);
+        });
     }
 
     public List<String> getDailyRecommendations() {
+        return read(this::buildDailyRecommendations);
+    }
+
+    private List<String> buildDailyRecommendations() {
         List<String> recommendations = new ArrayList<>();
+        DailyTotals today = getTotalsForDate(LocalDate.now());
         
-        double consumed = getTotalCaloriesToday();
+        double consumed = today.getCalories();
         double goal = userProfile.getDailyCalorieGoal();
         double remaining = goal - consumed;
         
@@ -177,13 +432,13 @@ public class DietPlannerService {
         }
         
         double proteinGoal = userProfile.getRecommendedProtein();
-        double proteinConsumed = getTotalProteinToday();
+        double proteinConsumed = today.getProtein();
         
         if (proteinConsumed < proteinGoal) {
             recommendations.add(String.format("Consider adding more protein - aim for %.0fg daily", proteinGoal));
         }
         
-        int mealsToday = getMealsForToday().size();
+        int mealsToday = today.getMealCount();
         if (mealsToday < 3) {
             recommendations.add("Try to have at least 3 balanced meals today");
         }
@@ -193,194 +448,293 @@ public class DietPlannerService {
 
     // Data Persistence
     public void saveAllData() {
-        saveUserProfile();
-        saveMeals();
-        saveFoodDatabase();
+        write(() -> {
+            saveUserProfile();
+            storage.flush();
+        });
+    }
+
+    /**
+     * Finish the changes already submitted to the ingest pipeline and the
+     * scheduler, flush pending data and release file handles; the service must
+     * not be used afterwards
+     */
+    public void shutdown() {
+        // Closing in the middle of loading would leave files half migrated
+        ready.handle((ignored, error) -> null).join();
+        mealIngest.close();
+        scheduler.shutdown(SHUTDOWN_TIMEOUT_MS);
+        write(() -> {
+            if (storage == null) return;
+            saveDashboardSnapshot();
+            backupIfDue();
+            storage.close();
+        });
+    }
+
+    // Backups
+
+    /**
+     * Back up the data directory, storing only what changed since the last
+     * backup, then drop backups the retention policy no longer keeps
+     */
+    public BackupStore.Snapshot createBackup() throws IOException {
+        BackupStore.Snapshot[] snapshot = new BackupStore.Snapshot[1];
+        lock.readLock().lock();
+        try {
+            storage.runQuiesced(() -> {
+                snapshot[0] = backups.backup(Path.of(DATA_DIR));
+                backups.prune();
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return snapshot[0];
+    }
+
+    /**
+     * @return the available backups, oldest first
+     */
+    public List<BackupStore.Snapshot> listBackups() throws IOException {
+        return backups.list();
+    }
+
+    /**
+     * Return all data to the state of a backup. The current state is backed up
+     * first, so a restore can itself be undone. Storage is closed, restored and
+     * reopened under the write lock, so other calls wait until it is done; other
+     * instances sharing the data directory should be closed beforehand.
+     */
+    public CompletableFuture<Void> restoreBackup(String snapshotId) {
+        return scheduler.execute(TaskScheduler.Lane.PERSISTENCE, () -> change(() -> {
+            try {
+                createBackup();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to back up data before restoring " + snapshotId, e);
+            }
+            storage.close();
+            IOException failure = null;
+            try {
+                backups.restore(snapshotId, Path.of(DATA_DIR));
+            } catch (IOException e) {
+                failure = e;
+            }
+            // Reopen whatever is there now, so the service stays usable after a failure
+            reopenStorage();
+            if (failure != null) {
+                throw new UncheckedIOException("Failed to restore backup " + snapshotId, failure);
+            }
+            return DataChangeEvent.reloaded();
+        }));
     }
 
-    private void saveUserProfile() {
+    /**
+     * Open the backend again on the calling thread: it holds the write lock, so
+     * it must not wait for scheduled work, which may be waiting for the lock
+     */
+    private void reopenStorage() {
+        StorageBackend backend = StorageBackend.forDirectory(Path.of(DATA_DIR));
+        useStorage(open(backend, Runnable::run).join());
+    }
+
+    private void backupIfDue() {
         try {
-            objectMapper.writeValue(new File(PROFILE_FILE), userProfile);
+            if (backups.isBackupDue()) {
+                createBackup();
+            }
         } catch (IOException e) {
-            System.err.println("Failed to save user profile: " + e.getMessage());
+            System.err.println("Failed to back up data: " + e.getMessage());
         }
     }
 
-    private void saveMeals() {
-        try {
-            objectMapper.writeValue(new File(MEALS_FILE), meals);
-        } catch (IOException e) {
-            System.err.println("Failed to save meals: " + e.getMessage());
+    /**
+     * Record the recent per-day totals for the next startup, unless the stored
+     * snapshot already describes the current data
+     */
+    private void saveDashboardSnapshot() {
+        if (dashboardFile == null || userProfile == null) return;
+        long revision = storage.meals().getRevision();
+        double calorieGoal = userProfile.getDailyCalorieGoal();
+        LocalDate today = LocalDate.now();
+        DashboardSnapshot current = dashboardSnapshot;
+        if (current != null && current.isValidFor(revision) && current.getTotals(today) != null
+                && current.getCalorieGoal() == calorieGoal) {
+            return;
+        }
+
+        LocalDate firstDay = today.minusDays(SNAPSHOT_DAYS - 1);
+        Map<LocalDate, List<Meal>> mealsByDate = getMealsBetween(firstDay, today).stream()
+            .collect(Collectors.groupingBy(meal -> meal.getDateTime().toLocalDate()));
+        List<DailyTotals> days = new ArrayList<>();
+        for (LocalDate date = firstDay; !date.isAfter(today); date = date.plusDays(1)) {
+            days.add(DailyTotals.of(date, mealsByDate.getOrDefault(date, List.of())));
         }
+        dashboardFile.write(new DashboardSnapshot(DashboardSnapshot.FORMAT_VERSION, revision, calorieGoal, days));
     }
 
-    private void saveFoodDatabase() {
+    private void saveUserProfile() {
+        storage.profiles().save(userProfile);
+    }
+
+    /**
+     * Write human-readable JSON copies of all data into the given directory for debugging
+     * @param targetDir directory to receive profile.json, meals.json and foods.json
+     */
+    public void exportAsJson(Path targetDir) throws IOException {
+        lock.readLock().lock();
         try {
-            objectMapper.writeValue(new File(FOODS_FILE), foodDatabase);
-        } catch (IOException e) {
-            System.err.println("Failed to save food database: " + e.getMessage());
+            writeJsonCopies(targetDir);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void writeJsonCopies(Path targetDir) throws IOException {
+        ObjectMapper jsonMapper = StorageFormat.JSON.createMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(targetDir);
+        jsonMapper.writeValue(StorageFormat.JSON.resolve(targetDir, PROFILE_NAME).toFile(), userProfile);
+        jsonMapper.writeValue(StorageFormat.JSON.resolve(targetDir, MEALS_NAME).toFile(), getAllMeals());
+        jsonMapper.writeValue(StorageFormat.JSON.resolve(targetDir, FOODS_NAME).toFile(), getFoodDatabase());
+    }
+
+    /**
+     * Open the configured backend and load the profile; if that fails, the
+     * returned future fails and the service has no storage
+     */
+    private CompletableFuture<Void> loadAllData() {
+        // The user is waiting for this, behind the splash screen
+        Executor loader = scheduler.executor(TaskScheduler.Lane.INTERACTIVE);
+        // Creating the backend is itself costly (mappers, threads), so it happens off the caller's thread too
+        return CompletableFuture.supplyAsync(() -> StorageBackend.forDirectory(Path.of(DATA_DIR)), loader)
+            .thenCompose(backend -> open(backend, loader))
+            .thenAccept(this::useStorage)
+            .whenComplete((ignored, error) -> {
+                if (error != null) {
+                    System.err.println("Failed to load data: " + error.getMessage());
+                }
+            });
+    }
+
+    /**
+     * Open the backend, closing it again if that fails
+     */
+    private static CompletableFuture<StorageBackend> open(StorageBackend backend, Executor executor) {
+        return backend.open(executor).handle((ignored, error) -> {
+            if (error == null) return backend;
+            backend.close();
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        });
+    }
+
+    /**
+     * Switch to an opened backend and load the profile and dashboard snapshot from it
+     */
+    private void useStorage(StorageBackend backend) {
+        storage = backend;
+        backend.setChangeListener(this::onExternalChange);
+
+        dashboardFile = new SnapshotFile<>(Path.of(DASHBOARD_FILE), DashboardSnapshot.class);
+        dashboardSnapshot = dashboardFile.read();
+
+        userProfile = storage.profiles().load();
+        if (userProfile == null) {
+            userProfile = new UserProfile();
+            saveUserProfile();
         }
     }
 
-    private void loadAllData() {
-        loadUserProfile();
-        loadMeals();
-        loadFoodDatabase();
+    private void onExternalChange() {
+        change(() -> {
+            UserProfile storedProfile = storage.profiles().load();
+            if (storedProfile != null) {
+                userProfile = storedProfile;
+            }
+            return DataChangeEvent.reloaded();
+        });
     }
 
-    private void loadUserProfile() {
+    /**
+     * Starter foods from the catalog shipped with the application
+     */
+    private List<FoodItem> loadStarterFoods() {
         try {
-            File profileFile = new File(PROFILE_FILE);
-            if (profileFile.exists()) {
-                userProfile = objectMapper.readValue(profileFile, UserProfile.class);
-            } else {
-                userProfile = new UserProfile();
-                saveUserProfile();
-            }
+            return FoodCatalog.openBundled(Path.of(DATA_DIR)).getAll();
         } catch (IOException e) {
-            System.err.println("Failed to load user profile: " + e.getMessage());
+            System.err.println("Failed to load food catalog: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Reset all data, keeping a backup of it
+    public void resetAllData() {
+        change(() -> {
+            try {
+                createBackup();
+            } catch (IOException e) {
+                System.err.println("Failed to back up data before reset: " + e.getMessage());
+            }
+            storage.meals().clear();
             userProfile = new UserProfile();
+            storage.foods().replaceAll(loadStarterFoods());
+            saveAllData();
+            return DataChangeEvent.reloaded();
+        });
+    }
+
+    private static void checkPageSize(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be from 1 to " + MAX_PAGE_SIZE + ", got " + limit);
         }
     }
 
-    private void loadMeals() {
+    private <T> T read(Supplier<T> query) {
+        lock.readLock().lock();
         try {
-            File mealsFile = new File(MEALS_FILE);
-            if (mealsFile.exists()) {
-                meals = objectMapper.readValue(mealsFile, new TypeReference<List<Meal>>() {});
-            } else {
-                meals = new ArrayList<>();
-                saveMeals();
-            }
-        } catch (IOException e) {
-            System.err.println("Failed to load meals: " + e.getMessage());
-            meals = new ArrayList<>();
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
-    private void loadFoodDatabase() {
+    private void write(Runnable change) {
+        lock.writeLock().lock();
         try {
-            File foodsFile = new File(FOODS_FILE);
-            if (foodsFile.exists()) {
-                foodDatabase = objectMapper.readValue(foodsFile, new TypeReference<List<FoodItem>>() {});
-            } else {
-                foodDatabase = createSampleFoodDatabase();
-                saveFoodDatabase();
-            }
-        } catch (IOException e) {
-            System.err.println("Failed to load food database: " + e.getMessage());
-            foodDatabase = createSampleFoodDatabase();
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
-    private List<FoodItem> createSampleFoodDatabase() {
-        List<FoodItem> foods = new ArrayList<>();
-        
-        // Proteins
-        foods.add(FoodItem.builder()
-            .name("Grilled Chicken Breast")
-            .calories(165).protein(31).carbs(0).fat(3.6).fiber(0)
-            .servingSize("100g").category(FoodCategory.PROTEIN).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Salmon Fillet")
-            .calories(208).protein(25.4).carbs(0).fat(12.4).fiber(0)
-            .servingSize("100g").category(FoodCategory.PROTEIN).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Eggs")
-            .calories(155).protein(13).carbs(1).fat(11).fiber(0)
-            .servingSize("2 large").category(FoodCategory.PROTEIN).build());
-        
-        // Vegetables
-        foods.add(FoodItem.builder()
-            .name("Broccoli")
-            .calories(34).protein(2.8).carbs(7).fat(0.4).fiber(2.6)
-            .servingSize("100g").category(FoodCategory.VEGETABLES).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Spinach")
-            .calories(23).protein(2.9).carbs(3.6).fat(0.4).fiber(2.2)
-            .servingSize("100g").category(FoodCategory.VEGETABLES).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Sweet Potato")
-            .calories(86).protein(1.6).carbs(20).fat(0.1).fiber(3)
-            .servingSize("100g").category(FoodCategory.VEGETABLES).build());
-        
-        // Fruits
-        foods.add(FoodItem.builder()
-            .name("Apple")
-            .calories(52).protein(0.3).carbs(14).fat(0.2).fiber(2.4)
-            .servingSize("1 medium").category(FoodCategory.FRUITS).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Banana")
-            .calories(89).protein(1.1).carbs(23).fat(0.3).fiber(2.6)
-            .servingSize("1 medium").category(FoodCategory.FRUITS).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Blueberries")
-            .calories(57).protein(0.7).carbs(14).fat(0.3).fiber(2.4)
-            .servingSize("100g").category(FoodCategory.FRUITS).build());
-        
-        // Grains
-        foods.add(FoodItem.builder()
-            .name("Brown Rice")
-            .calories(112).protein(2.6).carbs(23).fat(0.9).fiber(1.8)
-            .servingSize("100g cooked").category(FoodCategory.GRAINS).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Quinoa")
-            .calories(120).protein(4.4).carbs(22).fat(1.9).fiber(2.8)
-            .servingSize("100g cooked").category(FoodCategory.GRAINS).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Oatmeal")
-            .calories(68).protein(2.4).carbs(12).fat(1.4).fiber(1.7)
-            .servingSize("100g cooked").category(FoodCategory.GRAINS).build());
-        
-        // Dairy
-        foods.add(FoodItem.builder()
-            .name("Greek Yogurt")
-            .calories(97).protein(9).carbs(6).fat(5).fiber(0)
-            .servingSize("100g").category(FoodCategory.DAIRY).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Milk (2%)")
-            .calories(50).protein(3.3).carbs(5).fat(2).fiber(0)
-            .servingSize("100ml").category(FoodCategory.DAIRY).build());
-        
-        // Nuts
-        foods.add(FoodItem.builder()
-            .name("Almonds")
-            .calories(576).protein(21).carbs(22).fat(49).fiber(12)
-            .servingSize("100g").category(FoodCategory.NUTS).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Walnuts")
-            .calories(654).protein(15).carbs(14).fat(65).fiber(7)
-            .servingSize("100g").category(FoodCategory.NUTS).build());
-        
-        // Beverages
-        foods.add(FoodItem.builder()
-            .name("Green Tea")
-            .calories(2).protein(0).carbs(0).fat(0).fiber(0)
-            .servingSize("1 cup").category(FoodCategory.BEVERAGES).build());
-        
-        foods.add(FoodItem.builder()
-            .name("Protein Shake")
-            .calories(120).protein(25).carbs(3).fat(1).fiber(1)
-            .servingSize("1 scoop").category(FoodCategory.BEVERAGES).build());
-        
-        return foods;
+    /**
+     * Make a change under the write lock and report it to the listeners
+     * @param change makes the change and describes it, or returns null if nothing changed
+     */
+    private void change(Supplier<DataChangeEvent> change) {
+        DataChangeEvent event;
+        lock.writeLock().lock();
+        try {
+            event = change.get();
+            // Downgrade, so listeners can query the new state while the next change waits its turn
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            if (event != null) {
+                publish(event);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
-    // Reset all data
-    public void resetAllData() {
-        meals.clear();
-        userProfile = new UserProfile();
-        foodDatabase = createSampleFoodDatabase();
-        saveAllData();
+    private void publish(DataChangeEvent event) {
+        for (DataChangeListener listener : changeListeners) {
+            try {
+                listener.onDataChanged(event);
+            } catch (RuntimeException e) {
+                System.err.println("Change listener failed on " + event + ": " + e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,272 @@
+package com.sivasuryaa.fooddietplanner.service;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pipeline through which any number of threads, such as an import, a sync job
+ * and the meal dialogs, change meals without contending with each other.
+ *
+ * Producers put changes into a lock-free {@link MpscRingBuffer} and return at
+ * once. A single consumer thread takes them out in batches and applies each run
+ * of consecutive adds or deletes with one bulk call on the service, so a burst
+ * of changes costs one lock acquisition, one journal write and one change event
+ * per run rather than per meal. Changes from one producer are applied in the
+ * order it made them. Each change returns a future that completes once it has
+ * been applied, or exceptionally with the reason it could not be; when a run
+ * fails as a whole, its changes are retried one at a time so only those at
+ * fault fail.
+ *
+ * When the buffer is full, producers wait for the consumer to make room. The
+ * pipeline itself accepts well over a million changes a second, but sustained
+ * throughput is that of the meal store, which journals every change and writes
+ * back the months it touches: in the order of ten to thirty thousand meals a
+ * second, depending on how they spread over months. {@code MealIngestBenchmark}
+ * measures both.
+ */
+public class MealIngest {
+    private static final int CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 8192;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private enum Operation { ADD, UPDATE, DELETE }
+
+    private static final class Change {
+        private final Operation operation;
+        private final Meal meal;
+        private final EntityId mealId;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Change(Operation operation, Meal meal, EntityId mealId) {
+            this.operation = operation;
+            this.meal = meal;
+            this.mealId = mealId;
+        }
+    }
+
+    private static final class FlushRequest {
+        private final long position;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        FlushRequest(long position) {
+            this.position = position;
+        }
+    }
+
+    private final DietPlannerService service;
+    private final MpscRingBuffer<Change> buffer = new MpscRingBuffer<>(CAPACITY);
+    private final ConcurrentLinkedQueue<FlushRequest> flushRequests = new ConcurrentLinkedQueue<>();
+    private final Thread consumer;
+    // Set while the consumer is parked, so producers know to wake it
+    private volatile boolean consumerIdle;
+    private volatile boolean closed;
+    // Set once the consumer stops taking changes; whatever is published later fails
+    private volatile boolean stopped;
+    private volatile long applied;
+
+    MealIngest(DietPlannerService service) {
+        this.service = service;
+        this.consumer = new Thread(this::consume, "meal-ingest");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * @return completes once the meal is stored, or exceptionally if it could not be
+     */
+    public CompletableFuture<Void> addMeal(Meal meal) {
+        return publish(new Change(Operation.ADD, meal, meal.getId()));
+    }
+
+    /**
+     * @return completes once the meal is stored, or exceptionally if it could not be
+     */
+    public CompletableFuture<Void> updateMeal(Meal meal) {
+        return publish(new Change(Operation.UPDATE, meal, meal.getId()));
+    }
+
+    /**
+     * @return completes once the meal is deleted, or exceptionally if it could not be
+     */
+    public CompletableFuture<Void> deleteMeal(EntityId mealId) {
+        return publish(new Change(Operation.DELETE, null, mealId));
+    }
+
+    /**
+     * @return completes once every change published before this call has been applied
+     */
+    public CompletableFuture<Void> flush() {
+        FlushRequest request = new FlushRequest(buffer.claimed());
+        flushRequests.add(request);
+        // Nothing is applied after the consumer stopped
+        completeFlushRequests(stopped ? Long.MAX_VALUE : applied);
+        wakeConsumer();
+        return request.done;
+    }
+
+    /**
+     * Apply everything published so far and stop the consumer; changes
+     * published concurrently with closing may fail instead
+     */
+    void close() {
+        closed = true;
+        wakeConsumer();
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> publish(Change change) {
+        if (closed) {
+            throw new IllegalStateException("Meal ingest is closed");
+        }
+        while (!buffer.offer(change)) {
+            if (stopped) {
+                throw new IllegalStateException("Meal ingest is closed");
+            }
+            // Full: give the consumer time to catch up
+            wakeConsumer();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        if (stopped) {
+            // The consumer may have left before taking it; failing twice is harmless
+            fail(change, new IllegalStateException("Meal ingest is closed"));
+        }
+        wakeConsumer();
+        return change.done;
+    }
+
+    private void wakeConsumer() {
+        if (consumerIdle) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void consume() {
+        List<Change> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            if (buffer.drainTo(batch, MAX_BATCH) > 0) {
+                apply(batch);
+                applied += batch.size();
+                batch.clear();
+                completeFlushRequests(applied);
+                continue;
+            }
+            if (closed) {
+                stopped = true;
+                failRemaining();
+                completeFlushRequests(Long.MAX_VALUE);
+                return;
+            }
+            consumerIdle = true;
+            // Check again, a producer may have published before seeing the flag. The
+            // park is bounded, so a wakeup lost to that race only delays the batch.
+            if (buffer.isEmpty() && !closed) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            consumerIdle = false;
+        }
+    }
+
+    /**
+     * Apply each run of consecutive changes of the same kind together
+     */
+    private void apply(List<Change> batch) {
+        // Changes may be published while the service is still loading
+        Throwable loadFailure = service.whenReady().handle((ignored, error) -> error).join();
+        if (loadFailure != null) {
+            IllegalStateException notLoaded = new IllegalStateException("Data is not loaded", loadFailure);
+            batch.forEach(change -> fail(change, notLoaded));
+            return;
+        }
+        int start = 0;
+        while (start < batch.size()) {
+            Operation operation = batch.get(start).operation;
+            int end = start + 1;
+            while (end < batch.size() && batch.get(end).operation == operation && operation != Operation.UPDATE) {
+                end++;
+            }
+            List<Change> run = batch.subList(start, end);
+            try {
+                applyRun(operation, run);
+                run.forEach(change -> change.done.complete(null));
+            } catch (RuntimeException e) {
+                if (run.size() == 1) {
+                    fail(run.get(0), e);
+                } else {
+                    // The run is applied all or nothing; find the changes at fault
+                    for (Change change : run) {
+                        try {
+                            applyRun(operation, List.of(change));
+                            change.done.complete(null);
+                        } catch (RuntimeException changeError) {
+                            fail(change, changeError);
+                        }
+                    }
+                }
+            }
+            start = end;
+        }
+    }
+
+    private void applyRun(Operation operation, List<Change> run) {
+        switch (operation) {
+            case ADD -> {
+                List<Meal> meals = new ArrayList<>(run.size());
+                run.forEach(change -> meals.add(change.meal));
+                service.addMeals(meals);
+            }
+            case UPDATE -> service.updateMeal(run.get(0).meal);
+            case DELETE -> {
+                List<EntityId> mealIds = new ArrayList<>(run.size());
+                run.forEach(change -> mealIds.add(change.mealId));
+                service.deleteMealsById(mealIds);
+            }
+        }
+    }
+
+    private void fail(Change change, RuntimeException e) {
+        // Also logged, as a producer may not be listening
+        System.err.println("Failed to apply meal change for " + change.mealId + ": " + e.getMessage());
+        change.done.completeExceptionally(e);
+    }
+
+    /**
+     * Fail the changes published while the consumer was stopping. Slots claimed
+     * before {@link #stopped} was set are waited for, as their producers may still
+     * be filling them; a producer claiming one later sees the flag and fails its
+     * change itself.
+     */
+    private void failRemaining() {
+        List<Change> remaining = new ArrayList<>();
+        long end = buffer.claimed();
+        while (buffer.drained() < end) {
+            if (buffer.drainTo(remaining, MAX_BATCH) == 0) {
+                Thread.onSpinWait();
+            }
+        }
+        IllegalStateException closedError = new IllegalStateException("Meal ingest is closed");
+        remaining.forEach(change -> fail(change, closedError));
+    }
+
+    private void completeFlushRequests(long appliedSoFar) {
+        Iterator<FlushRequest> iterator = flushRequests.iterator();
+        while (iterator.hasNext()) {
+            FlushRequest request = iterator.next();
+            if (request.position <= appliedSoFar) {
+                iterator.remove();
+                request.done.complete(null);
+            }
+        }
+    }
+}
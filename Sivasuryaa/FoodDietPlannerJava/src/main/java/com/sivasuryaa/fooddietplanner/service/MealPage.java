@@ -0,0 +1,75 @@
+package com.sivasuryaa.fooddietplanner.service;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * One page of the meal history, newest first, from
+ * {@link DietPlannerService#getMeals(String, int)}.
+ *
+ * The cursor names the position of the page's last meal, its date and time and
+ * its id, rather than a count of meals, so meals added or deleted between two
+ * requests never make the next page skip or repeat a meal.
+ */
+public final class MealPage {
+    private static final char CURSOR_SEPARATOR = '_';
+
+    private final List<Meal> meals;
+    private final String nextCursor;
+
+    MealPage(List<Meal> meals, String nextCursor) {
+        this.meals = meals;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the meals of the page, read-only
+     */
+    public List<Meal> getMeals() { return meals; }
+
+    /**
+     * @return the cursor for the following page, or null if this is the last one
+     */
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    static String cursorAfter(Meal meal) {
+        return meal.getDateTime().toString() + CURSOR_SEPARATOR + meal.getId();
+    }
+
+    /**
+     * @return the date and time the cursor names
+     * @throws IllegalArgumentException if the text is not a cursor
+     */
+    static LocalDateTime dateTimeOf(String cursor) {
+        try {
+            return LocalDateTime.parse(cursor.substring(0, separatorIndex(cursor)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid meal cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * @return the meal id the cursor names
+     * @throws IllegalArgumentException if the text is not a cursor
+     */
+    static EntityId mealIdOf(String cursor) {
+        return EntityId.parse(cursor.substring(separatorIndex(cursor) + 1));
+    }
+
+    private static int separatorIndex(String cursor) {
+        // An ISO date and time never contains the separator; an id might
+        int index = cursor.indexOf(CURSOR_SEPARATOR);
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid meal cursor: " + cursor);
+        }
+        return index;
+    }
+}
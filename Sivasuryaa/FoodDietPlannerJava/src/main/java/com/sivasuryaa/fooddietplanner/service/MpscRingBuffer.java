@@ -0,0 +1,99 @@
+package com.sivasuryaa.fooddietplanner.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ *
+ * Producers claim a slot by advancing the shared tail with a compare-and-set,
+ * then publish the element by stamping the slot's sequence number; the
+ * consumer takes a slot once its stamp shows it was published, and stamps it
+ * free for the producer one lap later. Elements from one producer are taken
+ * in the order they were offered.
+ */
+final class MpscRingBuffer<E> {
+    private final Object[] elements;
+    // sequences[i] == position: free for the producer claiming position;
+    // sequences[i] == position + 1: holds the element published at position
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only read and written by the consumer
+    private long head;
+
+    /**
+     * @param capacity number of slots, a power of two
+     */
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The consumer has not freed this slot yet
+                return false;
+            }
+            // Another producer claimed the position first; try the next one
+        }
+    }
+
+    /**
+     * Move up to the given number of published elements into the list; consumer only
+     * @return the number of elements moved
+     */
+    @SuppressWarnings("unchecked")
+    int drainTo(List<E> target, int maxElements) {
+        int count = 0;
+        while (count < maxElements) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) break;
+            target.add((E) elements[index]);
+            elements[index] = null;
+            sequences.lazySet(index, head + elements.length);
+            head++;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of elements claimed so far, published or not
+     */
+    long claimed() {
+        return tail.get();
+    }
+
+    /**
+     * @return the number of elements drained so far; consumer thread only
+     */
+    long drained() {
+        return head;
+    }
+
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
@@ -0,0 +1,342 @@
+package com.sivasuryaa.fooddietplanner.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Background work for the whole application on one pool of worker threads,
+ * taken from priority lanes so that what the user is waiting on never queues
+ * behind a large save or import.
+ *
+ * Workers always take the highest lane that has work. Saving and bulk work run
+ * one task at a time each, in submission order, and one worker is kept free
+ * of everything but interactive work. Every lane's queue is bounded: the screen
+ * lanes drop their oldest waiting task when full, since a newer one supersedes
+ * it, while the saving and bulk lanes make the submitter wait for room. A task
+ * of one of those lanes cannot wait for room in its own lane, which runs only
+ * that task, so its submission is rejected instead. Work given to a lane's
+ * {@link #executor(Lane) executor} is never dropped, as it is usually a stage
+ * that other futures wait on.
+ *
+ * A task submitted with a key replaces the task still pending under that key,
+ * which is cancelled; a cancelled task that already started runs to the end,
+ * but its result is discarded. Long tasks can stop early by checking
+ * {@link #isCurrentTaskCancelled()}.
+ */
+public class TaskScheduler {
+    private static final int MIN_WORKERS = 4;
+
+    public enum Lane {
+        /** Work the user is waiting on, such as a search while typing */
+        INTERACTIVE(64, false),
+        /** Refreshing what is on screen */
+        REFRESH(64, false),
+        /** Saving changes */
+        PERSISTENCE(256, true),
+        /** Imports and analytics over the whole history */
+        BULK(16, true);
+
+        private final int capacity;
+        private final boolean waitWhenFull;
+
+        Lane(int capacity, boolean waitWhenFull) {
+            this.capacity = capacity;
+            this.waitWhenFull = waitWhenFull;
+        }
+    }
+
+    private static final ThreadLocal<Task<?>> CURRENT_TASK = new ThreadLocal<>();
+
+    private final int workerCount;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Map<Lane, ArrayDeque<Task<?>>> queues = new EnumMap<>(Lane.class);
+    private final Map<Lane, Integer> running = new EnumMap<>(Lane.class);
+    private final Map<String, Task<?>> tasksByKey = new HashMap<>();
+    private boolean shutdown;
+
+    public TaskScheduler() {
+        this(Math.max(MIN_WORKERS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param workerCount number of worker threads, at least two so one can be kept for interactive work
+     */
+    public TaskScheduler(int workerCount) {
+        if (workerCount < 2) {
+            throw new IllegalArgumentException("At least two workers are needed, got " + workerCount);
+        }
+        this.workerCount = workerCount;
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+            running.put(lane, 0);
+        }
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "scheduler-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public <T> Task<T> submit(Lane lane, Callable<T> work) {
+        return submit(lane, null, work);
+    }
+
+    /**
+     * @param key identifies what the task computes; a pending task with the same
+     *            key is cancelled. Null for a task that replaces nothing.
+     */
+    public <T> Task<T> submit(Lane lane, String key, Callable<T> work) {
+        return submit(lane, key, work, true);
+    }
+
+    /**
+     * @param droppable whether the task may be dropped to make room on a full screen lane
+     * @throws RejectedExecutionException if the scheduler is shut down, or a task
+     *         of a full lane that waits for room submits to that lane
+     */
+    private synchronized <T> Task<T> submit(Lane lane, String key, Callable<T> work, boolean droppable) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Task scheduler is shut down");
+        }
+        Task<?> current = CURRENT_TASK.get();
+        if (lane.waitWhenFull && current != null && current.lane == lane
+                && queues.get(lane).size() >= lane.capacity) {
+            // The lane runs one task at a time, the submitter, so room would never come
+            throw new RejectedExecutionException("The " + lane + " lane is full");
+        }
+        Task<T> task = new Task<>(lane, key, work, droppable);
+        if (key != null) {
+            Task<?> previous = tasksByKey.put(key, task);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+        }
+
+        ArrayDeque<Task<?>> queue = queues.get(lane);
+        while (queue.size() >= lane.capacity) {
+            if (!lane.waitWhenFull) {
+                Task<?> oldest = pollOldestDroppable(queue);
+                if (oldest == null) {
+                    // Only work that must not be lost is waiting; let the queue grow
+                    break;
+                }
+                if (oldest.key != null) {
+                    tasksByKey.remove(oldest.key, oldest);
+                }
+                oldest.cancel(false);
+                continue;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(false);
+                return task;
+            }
+            if (shutdown) {
+                throw new RejectedExecutionException("Task scheduler is shut down");
+            }
+        }
+        queue.addLast(task);
+        notifyAll();
+        return task;
+    }
+
+    public Task<Void> execute(Lane lane, Runnable work) {
+        return submit(lane, null, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return an executor that submits to the lane, for APIs that take one; its
+     *         work is never dropped or replaced
+     */
+    public Executor executor(Lane lane) {
+        return work -> submit(lane, null, () -> {
+            work.run();
+            return null;
+        }, false);
+    }
+
+    /**
+     * @return true if the task running on this thread has been cancelled
+     */
+    public static boolean isCurrentTaskCancelled() {
+        Task<?> task = CURRENT_TASK.get();
+        return task != null && task.isCancelled();
+    }
+
+    /**
+     * Stop accepting tasks, drop the waiting screen work and wait for saving and
+     * bulk work, and executor work, already submitted to finish
+     * @param timeoutMillis how long to wait for the workers
+     */
+    public void shutdown(long timeoutMillis) {
+        synchronized (this) {
+            shutdown = true;
+            for (Lane lane : List.of(Lane.INTERACTIVE, Lane.REFRESH)) {
+                for (Task<?> task : new ArrayList<>(queues.get(lane))) {
+                    if (task.droppable) {
+                        task.cancel(false);
+                    }
+                }
+            }
+            notifyAll();
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread worker : workers) {
+            if (worker == Thread.currentThread()) continue;
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Task<?> task;
+            synchronized (this) {
+                while ((task = next()) == null) {
+                    if (shutdown && isIdle()) {
+                        notifyAll();
+                        return;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Workers only stop at shutdown; a lost worker would never be replaced
+                    }
+                }
+                running.merge(task.lane, 1, Integer::sum);
+                // Room in the queue for a waiting submitter
+                notifyAll();
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    running.merge(task.lane, -1, Integer::sum);
+                    if (task.key != null) {
+                        tasksByKey.remove(task.key, task);
+                    }
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private Task<?> next() {
+        int backgroundRunning = 0;
+        for (Lane lane : Lane.values()) {
+            if (lane != Lane.INTERACTIVE) {
+                backgroundRunning += running.get(lane);
+            }
+        }
+        for (Lane lane : Lane.values()) {
+            ArrayDeque<Task<?>> queue = queues.get(lane);
+            if (queue.isEmpty() || running.get(lane) >= limitOf(lane)) continue;
+            if (lane != Lane.INTERACTIVE && backgroundRunning >= workerCount - 1) continue;
+            return queue.pollFirst();
+        }
+        return null;
+    }
+
+    private int limitOf(Lane lane) {
+        return switch (lane) {
+            case INTERACTIVE -> workerCount;
+            case REFRESH -> workerCount - 1;
+            // Serial, so changes are stored in the order they were made
+            case PERSISTENCE, BULK -> 1;
+        };
+    }
+
+    /**
+     * Remove the oldest task that may be dropped; the queue's own order is kept for the rest
+     */
+    private static Task<?> pollOldestDroppable(ArrayDeque<Task<?>> queue) {
+        Iterator<Task<?>> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Task<?> task = iterator.next();
+            if (task.droppable) {
+                iterator.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean isIdle() {
+        for (ArrayDeque<Task<?>> queue : queues.values()) {
+            if (!queue.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private synchronized void dequeue(Task<?> task) {
+        if (queues.get(task.lane).remove(task)) {
+            notifyAll();
+        }
+        if (task.key != null) {
+            tasksByKey.remove(task.key, task);
+        }
+    }
+
+    /**
+     * A submitted task; completes with the task's result, or exceptionally with what it threw
+     */
+    public final class Task<T> extends CompletableFuture<T> {
+        private final Lane lane;
+        private final String key;
+        private final Callable<T> work;
+        private final boolean droppable;
+
+        private Task(Lane lane, String key, Callable<T> work, boolean droppable) {
+            this.lane = lane;
+            this.key = key;
+            this.work = work;
+            this.droppable = droppable;
+        }
+
+        public Lane getLane() { return lane; }
+
+        /**
+         * Remove the task from its queue; a task that already started is not
+         * interrupted, as it may be writing files
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(false);
+            if (cancelled) {
+                dequeue(this);
+            }
+            return cancelled;
+        }
+
+        private void run() {
+            if (isDone()) return;
+            CURRENT_TASK.set(this);
+            try {
+                complete(work.call());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                CURRENT_TASK.remove();
+            }
+        }
+    }
+}
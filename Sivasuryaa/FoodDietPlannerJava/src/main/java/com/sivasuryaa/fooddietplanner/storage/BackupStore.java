@@ -0,0 +1,455 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Point-in-time backups of a data directory, stored content-addressed.
+ *
+ * Every file is kept once as a GZIP object named by the SHA-256 of its content,
+ * and a snapshot is a small manifest listing each file's path, size,
+ * modification time and object. A backup only reads files whose size or
+ * modification time differ from the previous snapshot and only stores content
+ * not stored before, so with partitioned meals it costs about the months that
+ * changed. Restoring rewrites only the files that differ from the snapshot.
+ *
+ * Layout of the backup directory:
+ * <pre>
+ *   objects/ab/abcdef...   file contents, GZIP-compressed
+ *   snapshots/&lt;id&gt;.manifest
+ * </pre>
+ */
+public final class BackupStore {
+    private static final String OBJECTS_DIR = "objects";
+    private static final String SNAPSHOTS_DIR = "snapshots";
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    // Derived, transient or lock files that are never backed up or restored
+    private static final Set<String> EXCLUDED_FILES = Set.of(".lock", "food-catalog.bin");
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int DEFAULT_INTERVAL_HOURS = 24;
+    private static final int DEFAULT_KEEP_LAST = 5;
+    private static final int DEFAULT_KEEP_DAILY = 14;
+    private static final int DEFAULT_KEEP_MONTHLY = 12;
+
+    private final Path backupDir;
+    private final Retention retention;
+    private final int intervalHours;
+
+    public BackupStore(Path backupDir, Retention retention, int intervalHours) {
+        this.backupDir = backupDir;
+        this.retention = retention;
+        this.intervalHours = intervalHours;
+    }
+
+    /**
+     * Backups for a data directory as configured in its {@code storage.properties}:
+     * {@code backupDir} (default: a {@code -backups} sibling of the data directory),
+     * {@code backupIntervalHours}, {@code backupKeepLast}, {@code backupKeepDaily}
+     * and {@code backupKeepMonthly}
+     */
+    public static BackupStore forDirectory(Path dataDir) {
+        Properties settings = StorageSettings.load(dataDir);
+        String configuredDir = settings.getProperty(StorageSettings.BACKUP_DIR);
+        Path backupDir = configuredDir != null && !configuredDir.isBlank()
+            ? Path.of(configuredDir.trim())
+            : dataDir.resolveSibling(dataDir.getFileName() + "-backups");
+        Retention retention = new Retention(
+            StorageSettings.getInt(settings, StorageSettings.BACKUP_KEEP_LAST, DEFAULT_KEEP_LAST),
+            StorageSettings.getInt(settings, StorageSettings.BACKUP_KEEP_DAILY, DEFAULT_KEEP_DAILY),
+            StorageSettings.getInt(settings, StorageSettings.BACKUP_KEEP_MONTHLY, DEFAULT_KEEP_MONTHLY));
+        return new BackupStore(backupDir,
+            retention, StorageSettings.getInt(settings, StorageSettings.BACKUP_INTERVAL_HOURS, DEFAULT_INTERVAL_HOURS));
+    }
+
+    /**
+     * How many snapshots survive {@link #prune()}: the newest ones, plus the
+     * newest of each recent day and of each recent month
+     */
+    public static final class Retention {
+        private final int keepLast;
+        private final int keepDaily;
+        private final int keepMonthly;
+
+        public Retention(int keepLast, int keepDaily, int keepMonthly) {
+            this.keepLast = Math.max(keepLast, 1);
+            this.keepDaily = Math.max(keepDaily, 0);
+            this.keepMonthly = Math.max(keepMonthly, 0);
+        }
+    }
+
+    /**
+     * One backup of the data directory
+     */
+    public static final class Snapshot {
+        private final String id;
+        private final LocalDateTime createdAt;
+        private final int fileCount;
+        private final long totalBytes;
+        private final int changedFiles;
+
+        Snapshot(String id, LocalDateTime createdAt, int fileCount, long totalBytes, int changedFiles) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.fileCount = fileCount;
+            this.totalBytes = totalBytes;
+            this.changedFiles = changedFiles;
+        }
+
+        public String getId() { return id; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public int getFileCount() { return fileCount; }
+        public long getTotalBytes() { return totalBytes; }
+        /**
+         * @return files that were new or different from the previous snapshot
+         */
+        public int getChangedFiles() { return changedFiles; }
+
+        @Override
+        public String toString() {
+            return String.format("%s - %d files, %d changed", id, fileCount, changedFiles);
+        }
+    }
+
+    private static final class Entry {
+        final String hash;
+        final long size;
+        final long modifiedMillis;
+
+        Entry(String hash, long size, long modifiedMillis) {
+            this.hash = hash;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+        }
+
+        boolean matches(long size, long modifiedMillis) {
+            return this.size == size && this.modifiedMillis == modifiedMillis;
+        }
+    }
+
+    /**
+     * @return true if no snapshot is newer than the configured interval
+     */
+    public boolean isBackupDue() throws IOException {
+        List<Snapshot> snapshots = list();
+        if (snapshots.isEmpty()) return true;
+        LocalDateTime latest = snapshots.get(snapshots.size() - 1).getCreatedAt();
+        return !latest.plusHours(intervalHours).isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * Record the current content of the data directory. The caller must keep
+     * writers out of the directory meanwhile, see {@link StorageBackend#runQuiesced}.
+     * @return the new snapshot, or the latest one if nothing changed since
+     */
+    public Snapshot backup(Path dataDir) throws IOException {
+        Snapshot latest = latest();
+        Map<String, Entry> previous = latest != null ? readManifest(latest.getId()) : Map.of();
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        int changed = 0;
+        for (Path file : dataFiles(dataDir)) {
+            String path = relativePath(dataDir, file);
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            Entry known = previous.get(path);
+            if (known != null && known.matches(size, modified)) {
+                entries.put(path, known);
+                continue;
+            }
+            entries.put(path, new Entry(store(file), size, modified));
+            changed++;
+        }
+        if (latest != null && changed == 0 && entries.keySet().equals(previous.keySet())) {
+            return latest;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        String id = ID_FORMAT.format(now);
+        if (latest != null && id.compareTo(latest.getId()) <= 0) {
+            // Two backups within a millisecond, or the clock went back; keep ids ordered
+            now = latest.getCreatedAt().plusNanos(1_000_000);
+            id = ID_FORMAT.format(now);
+        }
+        writeManifest(id, now, entries, changed);
+        return new Snapshot(id, now, entries.size(), totalBytes(entries), changed);
+    }
+
+    /**
+     * @return every snapshot, oldest first
+     */
+    public List<Snapshot> list() throws IOException {
+        Path snapshotsDir = backupDir.resolve(SNAPSHOTS_DIR);
+        if (!Files.isDirectory(snapshotsDir)) return new ArrayList<>();
+        List<String> ids;
+        try (Stream<Path> files = Files.list(snapshotsDir)) {
+            ids = files.map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(MANIFEST_SUFFIX))
+                .map(name -> name.substring(0, name.length() - MANIFEST_SUFFIX.length()))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (String id : ids) {
+            snapshots.add(readSnapshot(id));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Bring the data directory back to the snapshot: changed and missing files are
+     * rewritten, files added since are deleted. Nothing may have the directory's
+     * data open meanwhile; other processes are kept out by the directory lock.
+     */
+    public void restore(String snapshotId, Path dataDir) throws IOException {
+        Map<String, Entry> entries = readManifest(snapshotId);
+        DataDirectoryLock lock = DataDirectoryLock.forDirectory(dataDir);
+        try {
+            lock.run(() -> {
+                for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                    restoreFile(dataDir.resolve(item.getKey()), item.getValue());
+                }
+                for (Path file : dataFiles(dataDir)) {
+                    if (!entries.containsKey(relativePath(dataDir, file))) {
+                        Files.delete(file);
+                    }
+                }
+            });
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * Delete the snapshots the retention policy no longer keeps, then the objects
+     * no remaining snapshot refers to
+     * @return the number of snapshots deleted
+     */
+    public int prune() throws IOException {
+        List<Snapshot> snapshots = list();
+        Set<String> kept = new HashSet<>();
+        List<Snapshot> newestFirst = new ArrayList<>(snapshots);
+        newestFirst.sort(Comparator.comparing(Snapshot::getId).reversed());
+        Set<LocalDate> days = new HashSet<>();
+        Set<YearMonth> months = new HashSet<>();
+        for (int i = 0; i < newestFirst.size(); i++) {
+            Snapshot snapshot = newestFirst.get(i);
+            LocalDateTime created = snapshot.getCreatedAt();
+            boolean keep = i < retention.keepLast;
+            if (days.size() < retention.keepDaily && days.add(created.toLocalDate())) keep = true;
+            if (months.size() < retention.keepMonthly && months.add(YearMonth.from(created))) keep = true;
+            if (keep) {
+                kept.add(snapshot.getId());
+            }
+        }
+
+        int deleted = 0;
+        for (Snapshot snapshot : snapshots) {
+            if (!kept.contains(snapshot.getId())) {
+                Files.deleteIfExists(manifestFile(snapshot.getId()));
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            deleteUnreferencedObjects(kept);
+        }
+        return deleted;
+    }
+
+    private void deleteUnreferencedObjects(Set<String> snapshotIds) throws IOException {
+        Set<String> referenced = new HashSet<>();
+        for (String id : snapshotIds) {
+            readManifest(id).values().forEach(entry -> referenced.add(entry.hash));
+        }
+        Path objectsDir = backupDir.resolve(OBJECTS_DIR);
+        if (!Files.isDirectory(objectsDir)) return;
+        List<Path> unreferenced;
+        try (Stream<Path> files = Files.walk(objectsDir)) {
+            unreferenced = files.filter(Files::isRegularFile)
+                .filter(file -> !referenced.contains(file.getFileName().toString()))
+                .collect(Collectors.toList());
+        }
+        for (Path file : unreferenced) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Snapshot latest() throws IOException {
+        List<Snapshot> snapshots = list();
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    /**
+     * Hash the file and store its content unless an object with that hash exists
+     * @return the content hash
+     */
+    private String store(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        Path tempFile = Files.createTempFile(ensureDirectory(backupDir.resolve(OBJECTS_DIR)), "object", TEMP_SUFFIX);
+        try {
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path object = objectFile(hash);
+            if (!Files.exists(object)) {
+                ensureDirectory(object.getParent());
+                Files.move(tempFile, object, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void restoreFile(Path target, Entry entry) throws IOException {
+        if (Files.exists(target) && Files.size(target) == entry.size) {
+            if (Files.getLastModifiedTime(target).toMillis() == entry.modifiedMillis || entry.hash.equals(hash(target))) {
+                return;
+            }
+        }
+        ensureDirectory(target.getParent());
+        Path tempFile = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(objectFile(entry.hash)))) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            throw new IOException("Backup object for " + target.getFileName() + " is missing", e);
+        }
+        Files.setLastModifiedTime(tempFile, FileTime.fromMillis(entry.modifiedMillis));
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Snapshot readSnapshot(String id) throws IOException {
+        LocalDateTime createdAt = LocalDateTime.parse(id, ID_FORMAT);
+        int changed = 0;
+        int files = 0;
+        long totalBytes = 0;
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile(id), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("# changed ")) {
+                    changed = Integer.parseInt(line.substring("# changed ".length()).trim());
+                } else if (!line.startsWith("#") && !line.isEmpty()) {
+                    files++;
+                    totalBytes += Long.parseLong(line.split(" ", 4)[1]);
+                }
+            }
+        }
+        return new Snapshot(id, createdAt, files, totalBytes, changed);
+    }
+
+    /**
+     * @return entries by path relative to the data directory
+     */
+    private Map<String, Entry> readManifest(String id) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        Path manifest = manifestFile(id);
+        if (!Files.exists(manifest)) {
+            throw new NoSuchFileException("No backup " + id);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#") || line.isEmpty()) continue;
+                // hash size modified path; the path comes last as it may contain spaces
+                String[] fields = line.split(" ", 4);
+                entries.put(fields[3], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+            }
+        }
+        return entries;
+    }
+
+    private void writeManifest(String id, LocalDateTime createdAt, Map<String, Entry> entries, int changed)
+            throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("# backup ").append(createdAt).append('\n');
+        manifest.append("# changed ").append(changed).append('\n');
+        entries.forEach((path, entry) -> manifest.append(entry.hash).append(' ').append(entry.size).append(' ')
+            .append(entry.modifiedMillis).append(' ').append(path).append('\n'));
+        ensureDirectory(backupDir.resolve(SNAPSHOTS_DIR));
+        AtomicFiles.write(manifestFile(id), manifest.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Path> dataFiles(Path dataDir) throws IOException {
+        if (!Files.isDirectory(dataDir)) return new ArrayList<>();
+        Path backupRoot = backupDir.toAbsolutePath().normalize();
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            return files.filter(Files::isRegularFile)
+                .filter(file -> !file.toAbsolutePath().normalize().startsWith(backupRoot))
+                .filter(file -> {
+                    String name = file.getFileName().toString();
+                    return !EXCLUDED_FILES.contains(name) && !name.endsWith(TEMP_SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static String relativePath(Path dataDir, Path file) {
+        // Stored with forward slashes so manifests are portable
+        return dataDir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    private static long totalBytes(Map<String, Entry> entries) {
+        return entries.values().stream().mapToLong(entry -> entry.size).sum();
+    }
+
+    private Path manifestFile(String id) {
+        return backupDir.resolve(SNAPSHOTS_DIR).resolve(id + MANIFEST_SUFFIX);
+    }
+
+    private Path objectFile(String hash) {
+        return backupDir.resolve(OBJECTS_DIR).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Path ensureDirectory(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        return dir;
+    }
+}
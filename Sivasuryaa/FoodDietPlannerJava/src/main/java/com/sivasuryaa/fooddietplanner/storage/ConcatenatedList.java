@@ -0,0 +1,63 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list presenting several immutable lists as one without copying
+ * their elements, so a query result can share the per-month snapshots it is
+ * made of.
+ */
+final class ConcatenatedList<E> extends AbstractList<E> implements RandomAccess {
+    private final List<List<E>> segments;
+    // offsets[i] is the index of the first element of segments[i]
+    private final int[] offsets;
+    private final int size;
+
+    private ConcatenatedList(List<List<E>> segments) {
+        this.segments = segments;
+        this.offsets = new int[segments.size()];
+        int total = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            offsets[i] = total;
+            total += segments.get(i).size();
+        }
+        this.size = total;
+    }
+
+    /**
+     * @param segments lists that will not change afterwards
+     */
+    static <E> List<E> of(List<List<E>> segments) {
+        List<List<E>> nonEmpty = new ArrayList<>();
+        for (List<E> segment : segments) {
+            if (!segment.isEmpty()) {
+                nonEmpty.add(segment);
+            }
+        }
+        if (nonEmpty.isEmpty()) return List.of();
+        if (nonEmpty.size() == 1) return nonEmpty.get(0);
+        return new ConcatenatedList<>(nonEmpty);
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        int segment = Arrays.binarySearch(offsets, index);
+        if (segment < 0) {
+            // Insertion point minus one is the segment containing the index
+            segment = -segment - 2;
+        }
+        return segments.get(segment).get(index - offsets[segment]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,113 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a data directory shared by every process that uses it.
+ *
+ * Writers hold it only for the duration of one write, so several instances can
+ * run against the same directory and take turns. Within a process the lock is
+ * reentrant; across processes it is a {@link FileLock} on a marker file, which
+ * the operating system releases if the holder dies.
+ *
+ * A process holds file locks per file rather than per thread, so there is a
+ * single instance per directory, from {@link #forDirectory(Path)}; two instances
+ * would neither exclude each other's threads nor be able to lock the file at once.
+ */
+public class DataDirectoryLock {
+    private static final String LOCK_FILE = ".lock";
+    private static final Map<Path, DataDirectoryLock> LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Work to run while the lock is held
+     */
+    @FunctionalInterface
+    public interface LockedWork {
+        void run() throws IOException;
+    }
+
+    private final Path lockFile;
+    private final ReentrantLock localLock = new ReentrantLock();
+    private FileChannel channel;
+    private FileLock fileLock;
+
+    private DataDirectoryLock(Path dataDir) {
+        this.lockFile = dataDir.resolve(LOCK_FILE);
+    }
+
+    /**
+     * @return the lock of the directory, shared by everything in this process that uses it
+     */
+    public static DataDirectoryLock forDirectory(Path dataDir) {
+        return LOCKS.computeIfAbsent(dataDir.toAbsolutePath().normalize(), DataDirectoryLock::new);
+    }
+
+    /**
+     * Run the work while holding the lock
+     * @throws IOException if the file lock cannot be taken; the work does not run then
+     */
+    public void run(LockedWork work) throws IOException {
+        localLock.lock();
+        try {
+            if (localLock.getHoldCount() == 1) {
+                acquireFileLock();
+            }
+            work.run();
+        } finally {
+            if (localLock.getHoldCount() == 1) {
+                releaseFileLock();
+            }
+            localLock.unlock();
+        }
+    }
+
+    /**
+     * Close the lock file until the lock is next taken, for example when the
+     * directory is no longer in use
+     */
+    public void close() {
+        localLock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close data directory lock: " + e.getMessage());
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    private void acquireFileLock() throws IOException {
+        try {
+            if (channel == null) {
+                Files.createDirectories(lockFile.getParent());
+                channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            fileLock = channel.lock();
+        } catch (IOException | OverlappingFileLockException e) {
+            throw new IOException("Failed to lock data directory " + lockFile.getParent() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void releaseFileLock() {
+        if (fileLock == null) return;
+        try {
+            fileLock.release();
+        } catch (IOException e) {
+            System.err.println("Failed to unlock data directory: " + e.getMessage());
+        } finally {
+            fileLock = null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches a data directory for files created or modified, by this process or
+ * any other, and reports their names in batches on a background thread. Events
+ * arriving within a short window are collected into one batch, so a burst of
+ * appends is handled once; a steady stream is still reported every second. An empty batch means events were lost and any file
+ * may have changed.
+ */
+class DataDirectoryWatcher {
+    private static final long SETTLE_MS = 100;
+    private static final long MAX_BATCH_MS = 1000;
+
+    private final Path directory;
+    private final Consumer<Set<String>> handler;
+    private WatchService watchService;
+
+    /**
+     * @param handler receives the names of the changed files
+     */
+    DataDirectoryWatcher(Path directory, Consumer<Set<String>> handler) {
+        this.directory = directory;
+        this.handler = handler;
+    }
+
+    void start() throws IOException {
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(this::run, "data-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void close() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Failed to stop watching data directory: " + e.getMessage());
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<String> changed = new HashSet<>();
+                WatchKey key = watchService.take();
+                long deadline = System.currentTimeMillis() + MAX_BATCH_MS;
+                while (key != null) {
+                    collect(key, changed);
+                    if (System.currentTimeMillis() >= deadline) break;
+                    key = watchService.poll(SETTLE_MS, TimeUnit.MILLISECONDS);
+                }
+                try {
+                    handler.accept(changed);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to apply external data changes: " + e.getMessage());
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed with the backend
+        }
+    }
+
+    private static void collect(WatchKey key, Set<String> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path) {
+                changed.add(((Path) event.context()).getFileName().toString());
+            }
+        }
+        key.reset();
+    }
+}
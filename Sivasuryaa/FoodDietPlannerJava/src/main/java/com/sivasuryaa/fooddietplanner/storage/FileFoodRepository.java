@@ -0,0 +1,305 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodCategory;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Food database in two tiers: the read-only {@link FoodCatalog} shipped with the
+ * application, shared by every user, and a {@link FoodOverlay} with this user's
+ * additions, edits and deletions. Only the overlay is stored, in a single data
+ * file written through the write-behind executor, so saving one food writes
+ * just the user's own changes.
+ *
+ * Catalog foods come first in catalog order, then the overlay's foods in the
+ * order they were saved; an edited catalog food therefore moves to the end.
+ * The merged list is built once per change and shared, read-only, by queries.
+ *
+ * Another process may rewrite the overlay file. Its changes are merged food by
+ * food against the content this process last read or wrote: foods it added,
+ * edited or deleted are taken over unless this process changed the same food
+ * itself.
+ */
+class FileFoodRepository implements FoodRepository {
+    private static final TypeReference<List<FoodItem>> FOOD_LIST = new TypeReference<>() {};
+
+    private final ObjectReader overlayReader;
+    private final ObjectWriter overlayWriter;
+    private final ObjectReader legacyReader;
+    private final Path file;
+    private final WriteBehindExecutor writeBehind;
+    private FoodCatalog catalog = FoodCatalog.empty();
+    private FoodOverlay overlay = new FoodOverlay();
+    // Immutable merged list for the current overlay, null until first needed after a change
+    private List<FoodItem> view;
+    // The same foods in name order, built on the first paged search after a change
+    private List<FoodItem> byName;
+    // The file content this process last read or wrote, raw and decoded
+    private byte[] syncedContent;
+    private FoodOverlay syncedOverlay = new FoodOverlay();
+    // Set when a write merged in changes that have not been reported yet
+    private boolean unreportedChanges;
+
+    FileFoodRepository(ObjectMapper objectMapper, Path file, WriteBehindExecutor writeBehind) {
+        this.overlayReader = objectMapper.readerFor(FoodOverlay.class);
+        this.overlayWriter = objectMapper.writerFor(FoodOverlay.class);
+        this.legacyReader = objectMapper.readerFor(FOOD_LIST);
+        this.file = file;
+        this.writeBehind = writeBehind;
+    }
+
+    synchronized void load(FoodCatalog catalog) {
+        this.catalog = catalog;
+        view = null;
+        byName = null;
+        if (!Files.exists(file)) return;
+        try {
+            byte[] content = Files.readAllBytes(file);
+            overlay = overlayReader.readValue(content);
+            syncedContent = content;
+            syncedOverlay = overlay.copy();
+        } catch (IOException e) {
+            System.err.println("Failed to load food database: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Turn a food database stored as one complete list, from before the catalog,
+     * into an overlay file and remove it. Foods identical to a catalog food apart
+     * from their id, such as the old sample foods, are served by the catalog.
+     * Must run under the data directory lock, before {@link #load(FoodCatalog)}.
+     */
+    synchronized void migrateLegacy(Path legacyFile, FoodCatalog catalog) throws IOException {
+        if (Files.exists(file) || !Files.exists(legacyFile)) return;
+        List<FoodItem> foods = legacyReader.readValue(Files.readAllBytes(legacyFile));
+
+        Map<Long, List<EntityId>> catalogIdsByContent = new HashMap<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            FoodItem food = catalog.get(i);
+            catalogIdsByContent.computeIfAbsent(FoodSnapshotTable.versionOf(food), v -> new ArrayList<>())
+                .add(food.getId());
+        }
+        Set<EntityId> kept = new LinkedHashSet<>();
+        FoodOverlay migrated = new FoodOverlay();
+        for (FoodItem food : foods) {
+            List<EntityId> ids = catalogIdsByContent.get(FoodSnapshotTable.versionOf(food));
+            if (ids != null && !ids.isEmpty()) {
+                kept.add(ids.remove(0));
+            } else {
+                migrated.foods.put(food.getId(), food);
+            }
+        }
+        for (int i = 0; i < catalog.size(); i++) {
+            EntityId id = catalog.idAt(i);
+            if (!kept.contains(id) && !migrated.foods.containsKey(id)) {
+                migrated.deleted.add(id);
+            }
+        }
+        AtomicFiles.write(file, overlayWriter.writeValueAsBytes(migrated));
+        Files.delete(legacyFile);
+    }
+
+    /**
+     * Merge the changes another process wrote to the file since it was last synced
+     * @return true if the food database changed
+     */
+    synchronized boolean applyExternalChanges() {
+        boolean changed = unreportedChanges;
+        unreportedChanges = false;
+        try {
+            return mergeStoredChanges() || changed;
+        } catch (IOException e) {
+            System.err.println("Failed to reload food database: " + e.getMessage());
+            return changed;
+        }
+    }
+
+    @Override
+    public synchronized List<FoodItem> findAll() {
+        if (view == null) {
+            view = Collections.unmodifiableList(merge());
+        }
+        return view;
+    }
+
+    @Override
+    public synchronized List<FoodItem> search(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return findAll();
+        }
+        return filter(matching(query));
+    }
+
+    /**
+     * Scans the name-ordered list only as far as the page reaches
+     */
+    @Override
+    public synchronized List<FoodItem> search(String query, int offset, int limit) {
+        List<FoodItem> sorted = byName();
+        if (query == null || query.trim().isEmpty()) {
+            int from = Math.min(offset, sorted.size());
+            return sorted.subList(from, Math.min(from + limit, sorted.size()));
+        }
+
+        Predicate<FoodItem> filter = matching(query);
+        List<FoodItem> page = new ArrayList<>();
+        int skipped = 0;
+        for (FoodItem food : sorted) {
+            if (!filter.test(food)) continue;
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            page.add(food);
+            if (page.size() == limit) break;
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    @Override
+    public synchronized List<FoodItem> findByCategory(FoodCategory category) {
+        return filter(food -> food.getCategory() == category);
+    }
+
+    /**
+     * Saving a catalog food unchanged drops the user's edit of it
+     */
+    @Override
+    public synchronized void save(FoodItem food) {
+        FoodItem base = catalog.find(food.getId());
+        overlay.setState(food.getId(), FoodOverlay.sameState(base, food) ? null : food);
+        markDirty();
+    }
+
+    @Override
+    public synchronized void saveAll(List<FoodItem> foods) {
+        for (FoodItem food : foods) {
+            FoodItem base = catalog.find(food.getId());
+            overlay.setState(food.getId(), FoodOverlay.sameState(base, food) ? null : food);
+        }
+        markDirty();
+    }
+
+    @Override
+    public synchronized void delete(EntityId foodId) {
+        overlay.setState(foodId, catalog.find(foodId) != null ? FoodOverlay.DELETED : null);
+        markDirty();
+    }
+
+    /**
+     * Catalog foods left out are marked deleted and only foods that differ from
+     * the catalog are stored, so replacing with the catalog's own foods empties
+     * the overlay
+     */
+    @Override
+    public synchronized void replaceAll(List<FoodItem> newFoods) {
+        overlay = new FoodOverlay();
+        for (int i = 0; i < catalog.size(); i++) {
+            overlay.deleted.add(catalog.idAt(i));
+        }
+        for (FoodItem food : newFoods) {
+            FoodItem base = catalog.find(food.getId());
+            overlay.setState(food.getId(), FoodOverlay.sameState(base, food) ? null : food);
+        }
+        markDirty();
+    }
+
+    private static Predicate<FoodItem> matching(String query) {
+        String lowercaseQuery = query.toLowerCase().trim();
+        return food ->
+            food.getName().toLowerCase().contains(lowercaseQuery) ||
+            food.getCategory().getDisplayName().toLowerCase().contains(lowercaseQuery);
+    }
+
+    private List<FoodItem> byName() {
+        if (byName == null) {
+            List<FoodItem> sorted = new ArrayList<>(findAll());
+            sorted.sort(BY_NAME);
+            byName = Collections.unmodifiableList(sorted);
+        }
+        return byName;
+    }
+
+    private List<FoodItem> filter(Predicate<FoodItem> filter) {
+        List<FoodItem> result = new ArrayList<>();
+        for (FoodItem food : findAll()) {
+            if (filter.test(food)) {
+                result.add(food);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private List<FoodItem> merge() {
+        List<FoodItem> result = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            if (overlay.stateOf(catalog.idAt(i)) == null) {
+                result.add(catalog.get(i));
+            }
+        }
+        result.addAll(overlay.foods.values());
+        return result;
+    }
+
+    private void markDirty() {
+        view = null;
+        byName = null;
+        writeBehind.markDirty(file, this::encode);
+    }
+
+    /**
+     * Runs on the write-behind thread under the data directory lock, so nothing
+     * can change the file between merging it and replacing it
+     */
+    private synchronized byte[] encode() throws IOException {
+        unreportedChanges |= mergeStoredChanges();
+        syncedContent = overlayWriter.writeValueAsBytes(overlay);
+        syncedOverlay = overlay.copy();
+        return syncedContent;
+    }
+
+    private boolean mergeStoredChanges() throws IOException {
+        if (!Files.exists(file)) return false;
+        byte[] content = Files.readAllBytes(file);
+        if (Arrays.equals(content, syncedContent)) return false;
+
+        FoodOverlay stored = overlayReader.readValue(content);
+        Set<EntityId> foodIds = new LinkedHashSet<>(syncedOverlay.foods.keySet());
+        foodIds.addAll(syncedOverlay.deleted);
+        foodIds.addAll(stored.foods.keySet());
+        foodIds.addAll(stored.deleted);
+        boolean changed = false;
+        for (EntityId foodId : foodIds) {
+            Object synced = syncedOverlay.stateOf(foodId);
+            Object storedState = stored.stateOf(foodId);
+            if (FoodOverlay.sameState(storedState, synced)) continue;
+            // Added, edited or deleted elsewhere; take it unless this process changed the food too
+            if (FoodOverlay.sameState(overlay.stateOf(foodId), synced)) {
+                overlay.setState(foodId, storedState);
+                view = null;
+                byName = null;
+                changed = true;
+            }
+        }
+        syncedContent = content;
+        syncedOverlay = stored;
+        return changed;
+    }
+}
@@ -0,0 +1,83 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sivasuryaa.fooddietplanner.model.UserProfile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Profile kept in a single data file, written through the write-behind executor.
+ * When another process rewrites the file, the last writer wins.
+ */
+class FileProfileRepository implements ProfileRepository {
+    private final ObjectReader profileReader;
+    private final ObjectWriter profileWriter;
+    private final Path file;
+    private final WriteBehindExecutor writeBehind;
+    private UserProfile profile;
+    // The file content this process last read or wrote
+    private byte[] syncedContent;
+    private boolean modified;
+
+    FileProfileRepository(ObjectMapper objectMapper, Path file, WriteBehindExecutor writeBehind) {
+        this.profileReader = objectMapper.readerFor(UserProfile.class);
+        this.profileWriter = objectMapper.writerFor(UserProfile.class);
+        this.file = file;
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Read the stored profile, if any, so {@link #load()} can return it
+     */
+    synchronized void read() {
+        if (!Files.exists(file)) return;
+        try {
+            byte[] content = Files.readAllBytes(file);
+            profile = profileReader.readValue(content);
+            syncedContent = content;
+        } catch (IOException e) {
+            System.err.println("Failed to load user profile: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pick up a profile another process saved, unless this one has a save pending
+     * @return true if the profile was replaced
+     */
+    synchronized boolean applyExternalChanges() {
+        if (modified || !Files.exists(file)) return false;
+        try {
+            byte[] content = Files.readAllBytes(file);
+            if (Arrays.equals(content, syncedContent)) return false;
+            profile = profileReader.readValue(content);
+            syncedContent = content;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to reload user profile: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized UserProfile load() {
+        return profile;
+    }
+
+    @Override
+    public synchronized void save(UserProfile profile) {
+        this.profile = profile;
+        modified = true;
+        writeBehind.markDirty(file, this::encode);
+    }
+
+    private synchronized byte[] encode() throws IOException {
+        syncedContent = profileWriter.writeValueAsBytes(profile);
+        modified = false;
+        return syncedContent;
+    }
+}
@@ -0,0 +1,200 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Backend that keeps each data set in files of the configured {@link StorageFormat}:
+ * the profile as a single file, the food database as the shared {@link FoodCatalog}
+ * plus a file with the user's changes to it, meals in a {@link MealStore}.
+ *
+ * Several processes can share the data directory. Writes are serialized by a
+ * {@link DataDirectoryLock}, and a {@link DataDirectoryWatcher} applies what the
+ * other processes wrote: new meal journal entries and merged food changes, so
+ * nothing is reloaded wholesale.
+ */
+public class FileStorageBackend implements StorageBackend {
+    private static final String PROFILE_NAME = "profile";
+    private static final String MEALS_NAME = "meals";
+    // The complete food list, stored before the catalog took over the common foods
+    private static final String FOODS_NAME = "foods";
+    private static final String FOOD_OVERLAY_NAME = "food-overlay";
+    private static final String MEALS_JOURNAL_FILE = "meals.journal";
+
+    private final Path dataDir;
+    private final StorageFormat format;
+    private final DataDirectoryLock lock;
+    private final DataDirectoryWatcher watcher;
+    private final WriteBehindExecutor writeBehind;
+    private final FileProfileRepository profiles;
+    private final FileFoodRepository foods;
+    private final MealStore meals;
+    private volatile Runnable changeListener;
+
+    public FileStorageBackend(Path dataDir, StorageFormat format) {
+        ObjectMapper objectMapper = format.createMapper();
+        this.dataDir = dataDir;
+        this.format = format;
+        this.lock = DataDirectoryLock.forDirectory(dataDir);
+        this.watcher = new DataDirectoryWatcher(dataDir, this::applyExternalChanges);
+        this.writeBehind = new WriteBehindExecutor(lock);
+        this.profiles = new FileProfileRepository(objectMapper, dataFile(PROFILE_NAME), writeBehind);
+        this.foods = new FileFoodRepository(objectMapper, dataFile(FOOD_OVERLAY_NAME), writeBehind);
+        int archiveAfterMonths = StorageSettings.getInt(StorageSettings.load(dataDir),
+            StorageSettings.ARCHIVE_AFTER_MONTHS, MealStore.DEFAULT_ARCHIVE_AFTER_MONTHS);
+        this.meals = new MealStore(format, dataDir.resolve(MEALS_NAME), dataDir.resolve(MEALS_JOURNAL_FILE),
+            lock, MealStore.DEFAULT_CACHED_MONTHS, archiveAfterMonths);
+    }
+
+    /**
+     * The profile, food database and meal history live in separate files, so
+     * they are loaded in parallel
+     */
+    @Override
+    public CompletableFuture<Void> open(Executor executor) {
+        CompletableFuture<Void> profile = CompletableFuture.runAsync(() -> {
+            migrate(PROFILE_NAME);
+            profiles.read();
+        }, executor);
+        CompletableFuture<Void> foodDatabase = CompletableFuture.runAsync(() -> {
+            FoodCatalog catalog = openCatalog();
+            migrate(FOODS_NAME);
+            migrate(FOOD_OVERLAY_NAME);
+            try {
+                lock.run(() -> foods.migrateLegacy(dataFile(FOODS_NAME), catalog));
+            } catch (IOException e) {
+                System.err.println("Failed to convert food database to the catalog overlay: " + e.getMessage());
+            }
+            foods.load(catalog);
+        }, executor);
+        CompletableFuture<Void> mealHistory = CompletableFuture.runAsync(() -> {
+            // A single-file history from before partitioning is split up by the store
+            migrate(MEALS_NAME);
+            try {
+                meals.open(dataFile(MEALS_NAME));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load meals", e);
+            }
+        }, executor);
+        return CompletableFuture.allOf(profile, foodDatabase, mealHistory).thenRun(this::startWatching);
+    }
+
+    @Override
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    @Override
+    public ProfileRepository profiles() {
+        return profiles;
+    }
+
+    @Override
+    public MealRepository meals() {
+        return meals;
+    }
+
+    @Override
+    public FoodRepository foods() {
+        return foods;
+    }
+
+    @Override
+    public void flush() {
+        writeBehind.flush();
+        meals.flush();
+    }
+
+    /**
+     * Every writer, in this process or another, takes the directory lock
+     */
+    @Override
+    public void runQuiesced(DataDirectoryLock.LockedWork work) throws IOException {
+        flush();
+        lock.run(work);
+    }
+
+    @Override
+    public void close() {
+        watcher.close();
+        writeBehind.close();
+        meals.close();
+        lock.close();
+    }
+
+    /**
+     * @return true if the directory holds data written by this backend in any format
+     */
+    public static boolean hasData(Path dataDir) {
+        if (Files.isDirectory(dataDir.resolve(MEALS_NAME))) return true;
+        for (StorageFormat format : StorageFormat.values()) {
+            for (String baseName : new String[] { PROFILE_NAME, MEALS_NAME, FOODS_NAME, FOOD_OVERLAY_NAME }) {
+                if (Files.exists(format.resolve(dataDir, baseName))) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Watching only matters to a listener, so a backend opened just to read the
+     * data, such as for an import, does not watch
+     */
+    private void startWatching() {
+        if (changeListener == null) return;
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            System.err.println("Failed to watch data directory for changes: " + e.getMessage());
+        }
+    }
+
+    private void applyExternalChanges(Set<String> changedFiles) {
+        boolean anyFile = changedFiles.isEmpty();
+        boolean changed = false;
+        if (anyFile || changedFiles.contains(MEALS_JOURNAL_FILE)) {
+            changed |= meals.applyExternalChanges() > 0;
+        }
+        if (anyFile || changedFiles.contains(dataFile(FOOD_OVERLAY_NAME).getFileName().toString())) {
+            changed |= foods.applyExternalChanges();
+        }
+        if (anyFile || changedFiles.contains(dataFile(PROFILE_NAME).getFileName().toString())) {
+            changed |= profiles.applyExternalChanges();
+        }
+        Runnable listener = changeListener;
+        if (changed && listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * The shipped catalog, or an empty one if it cannot be read so the user's
+     * own foods are still available
+     */
+    private FoodCatalog openCatalog() {
+        try {
+            return FoodCatalog.openBundled(dataDir);
+        } catch (IOException e) {
+            System.err.println("Failed to open food catalog: " + e.getMessage());
+            return FoodCatalog.empty();
+        }
+    }
+
+    private void migrate(String baseName) {
+        try {
+            lock.run(() -> format.migrate(dataDir, baseName));
+        } catch (IOException e) {
+            System.err.println("Failed to convert " + baseName + " to " + format.getExtension() + ": " + e.getMessage());
+        }
+    }
+
+    private Path dataFile(String baseName) {
+        return format.resolve(dataDir, baseName);
+    }
+}
@@ -0,0 +1,231 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodCategory;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only food catalog compiled at build time by {@link FoodCatalogCompiler}
+ * and memory-mapped at runtime, so opening it costs the same for eighteen foods
+ * as for hundreds of thousands and nothing is copied onto the heap until a food
+ * is actually read.
+ *
+ * File layout, little-endian:
+ * <pre>
+ *   header   magic "FDPC", format version, food count, record size,
+ *            string pool offset (long), content fingerprint (long)
+ *   records  one fixed-size record per food, in id order: id, name and serving
+ *            size as string pool offsets, five nutrients in hundredths, category ordinal
+ *   pool     strings as an unsigned 16-bit length followed by UTF-8 bytes
+ * </pre>
+ */
+public final class FoodCatalog {
+    static final int MAGIC = 0x43504446; // "FDPC" read little-endian
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 36;
+    static final String RESOURCE = "/catalog/foods.bin";
+    private static final String EXTRACTED_FILE = "food-catalog.bin";
+
+    // Offsets within a record
+    static final int ID = 0;
+    static final int NAME = 4;
+    static final int SERVING_SIZE = 8;
+    static final int CALORIES = 12;
+    static final int PROTEIN = 16;
+    static final int CARBS = 20;
+    static final int FAT = 24;
+    static final int FIBER = 28;
+    static final int CATEGORY = 32;
+
+    private static final FoodCategory[] CATEGORIES = FoodCategory.values();
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int poolOffset;
+
+    private FoodCatalog(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a food catalog");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION || buffer.getInt(12) != RECORD_SIZE) {
+            throw new IOException("Unsupported food catalog version " + buffer.getInt(4));
+        }
+        this.size = buffer.getInt(8);
+        this.poolOffset = Math.toIntExact(buffer.getLong(16));
+    }
+
+    /**
+     * Map the catalog shipped with the application. When it is packaged inside a
+     * jar it cannot be mapped in place, so it is first extracted into the data
+     * directory, once per catalog version.
+     */
+    public static FoodCatalog openBundled(Path dataDir) throws IOException {
+        URL resource = FoodCatalog.class.getResource(RESOURCE);
+        if (resource == null) {
+            throw new FileNotFoundException("Food catalog resource " + RESOURCE + " is missing from the build");
+        }
+        Path file;
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                file = Path.of(resource.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid food catalog location " + resource, e);
+            }
+        } else {
+            file = extract(resource, dataDir.resolve(EXTRACTED_FILE));
+        }
+        return open(file);
+    }
+
+    /**
+     * Map a compiled catalog file
+     */
+    public static FoodCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new FoodCatalog(buffer);
+        }
+    }
+
+    /**
+     * A catalog without foods, for when the shipped one cannot be read
+     */
+    public static FoodCatalog empty() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(0).putInt(RECORD_SIZE).putLong(HEADER_SIZE).putLong(0);
+        try {
+            return new FoodCatalog(header);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find a food by id with a binary search; the compiler keeps records in id order
+     * @return the food, or null if the catalog has no food with the id
+     */
+    public FoodItem find(EntityId id) {
+        String text = id.toString();
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = idText(middle).compareTo(text);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return get(middle);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decode only the id of the food stored at the index
+     */
+    public EntityId idAt(int index) {
+        return EntityId.parse(idText(index));
+    }
+
+    /**
+     * Decode the food stored at the index
+     */
+    public FoodItem get(int index) {
+        int record = recordOffset(index);
+        return new FoodItem(
+            EntityId.parse(string(buffer.getInt(record + ID))),
+            string(buffer.getInt(record + NAME)),
+            hundredths(record + CALORIES),
+            hundredths(record + PROTEIN),
+            hundredths(record + CARBS),
+            hundredths(record + FAT),
+            hundredths(record + FIBER),
+            string(buffer.getInt(record + SERVING_SIZE)),
+            CATEGORIES[buffer.get(record + CATEGORY)]);
+    }
+
+    /**
+     * @return every food in catalog order
+     */
+    public List<FoodItem> getAll() {
+        List<FoodItem> foods = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            foods.add(get(i));
+        }
+        return foods;
+    }
+
+    private int recordOffset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Food " + index + " of " + size);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private String idText(int index) {
+        return string(buffer.getInt(recordOffset(index) + ID));
+    }
+
+    private double hundredths(int offset) {
+        return buffer.getInt(offset) / 100.0;
+    }
+
+    private String string(int poolIndex) {
+        int offset = poolOffset + poolIndex;
+        int length = Short.toUnsignedInt(buffer.getShort(offset));
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy the packaged catalog to the target unless the target already holds
+     * the same version, identified by the header and its content fingerprint
+     */
+    private static Path extract(URL resource, Path target) throws IOException {
+        byte[] header;
+        try (InputStream in = resource.openStream()) {
+            header = in.readNBytes(HEADER_SIZE);
+        }
+        if (Files.exists(target)) {
+            try (InputStream in = Files.newInputStream(target)) {
+                if (Arrays.equals(header, in.readNBytes(HEADER_SIZE))) return target;
+            }
+        }
+        Files.createDirectories(target.getParent());
+        Path tempFile = Files.createTempFile(target.getParent(), EXTRACTED_FILE, ".tmp");
+        try (InputStream in = resource.openStream()) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return target;
+    }
+}
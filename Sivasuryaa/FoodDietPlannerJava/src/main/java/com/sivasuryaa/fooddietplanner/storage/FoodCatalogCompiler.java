@@ -0,0 +1,189 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.FoodCategory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Build-time tool that compiles the CSV food catalog into the binary layout
+ * read by {@link FoodCatalog}. Run by the build during {@code process-classes}:
+ * <pre>
+ *   FoodCatalogCompiler &lt;catalog.csv&gt; &lt;foods.bin&gt;
+ * </pre>
+ * The CSV has a header row naming the columns id, name, category, servingSize,
+ * calories, protein, carbs, fat and fiber; lines starting with # are comments.
+ * Fields may be double-quoted to contain commas. Rows must be sorted by id, so
+ * foods can be looked up in the compiled catalog with a binary search.
+ */
+public final class FoodCatalogCompiler {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String[] COLUMNS = {
+        "id", "name", "category", "servingSize", "calories", "protein", "carbs", "fat", "fiber"
+    };
+
+    private FoodCatalogCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: FoodCatalogCompiler <catalog.csv> <foods.bin>");
+            System.exit(2);
+        }
+        Path source = Path.of(args[0]);
+        Path target = Path.of(args[1]);
+        int count = compile(source, target);
+        System.out.println("Compiled " + count + " foods from " + source.getFileName() + " into " + target);
+    }
+
+    /**
+     * @return the number of foods written
+     */
+    static int compile(Path source, Path target) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        int[] columns = null;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+                List<String> fields = parseLine(line);
+                if (columns == null) {
+                    columns = mapColumns(fields);
+                    continue;
+                }
+                String[] row = new String[COLUMNS.length];
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    if (columns[i] >= fields.size()) {
+                        throw new IOException(source.getFileName() + ":" + lineNumber + ": missing " + COLUMNS[i]);
+                    }
+                    row[i] = fields.get(columns[i]).trim();
+                }
+                if (!rows.isEmpty() && rows.get(rows.size() - 1)[0].compareTo(row[0]) >= 0) {
+                    throw new IOException(source.getFileName() + ":" + lineNumber + ": id " + row[0]
+                        + " is not in ascending order");
+                }
+                rows.add(row);
+            }
+        }
+
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        Map<String, Integer> pooled = new HashMap<>();
+        ByteBuffer records = ByteBuffer.allocate(rows.size() * FoodCatalog.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (String[] row : rows) {
+            int record = records.position();
+            records.putInt(record + FoodCatalog.ID, intern(row[0], pool, pooled));
+            records.putInt(record + FoodCatalog.NAME, intern(row[1], pool, pooled));
+            records.putInt(record + FoodCatalog.SERVING_SIZE, intern(row[3], pool, pooled));
+            records.putInt(record + FoodCatalog.CALORIES, hundredths(row[4]));
+            records.putInt(record + FoodCatalog.PROTEIN, hundredths(row[5]));
+            records.putInt(record + FoodCatalog.CARBS, hundredths(row[6]));
+            records.putInt(record + FoodCatalog.FAT, hundredths(row[7]));
+            records.putInt(record + FoodCatalog.FIBER, hundredths(row[8]));
+            records.put(record + FoodCatalog.CATEGORY, (byte) FoodCategory.valueOf(row[2].toUpperCase(Locale.ROOT)).ordinal());
+            records.position(record + FoodCatalog.RECORD_SIZE);
+        }
+
+        byte[] body = new byte[records.capacity() + pool.size()];
+        System.arraycopy(records.array(), 0, body, 0, records.capacity());
+        System.arraycopy(pool.toByteArray(), 0, body, records.capacity(), pool.size());
+
+        ByteBuffer header = ByteBuffer.allocate(FoodCatalog.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(FoodCatalog.MAGIC)
+            .putInt(FoodCatalog.FORMAT_VERSION)
+            .putInt(rows.size())
+            .putInt(FoodCatalog.RECORD_SIZE)
+            .putLong(FoodCatalog.HEADER_SIZE + (long) records.capacity())
+            .putLong(fingerprint(body));
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        byte[] data = new byte[FoodCatalog.HEADER_SIZE + body.length];
+        System.arraycopy(header.array(), 0, data, 0, FoodCatalog.HEADER_SIZE);
+        System.arraycopy(body, 0, data, FoodCatalog.HEADER_SIZE, body.length);
+        AtomicFiles.write(target, data);
+        return rows.size();
+    }
+
+    private static int[] mapColumns(List<String> header) throws IOException {
+        int[] columns = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columns[i] = header.indexOf(COLUMNS[i]);
+            if (columns[i] < 0) {
+                throw new IOException("Food catalog has no " + COLUMNS[i] + " column");
+            }
+        }
+        return columns;
+    }
+
+    private static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Add the string to the pool once and return its offset there
+     */
+    private static int intern(String value, ByteArrayOutputStream pool, Map<String, Integer> pooled) {
+        return pooled.computeIfAbsent(value, v -> {
+            byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Catalog string too long: " + v.substring(0, 40) + "...");
+            }
+            int offset = pool.size();
+            // Little-endian length, like the rest of the file
+            pool.write(bytes.length);
+            pool.write(bytes.length >>> 8);
+            pool.write(bytes, 0, bytes.length);
+            return offset;
+        });
+    }
+
+    private static int hundredths(String value) {
+        return Math.toIntExact(Math.round(Double.parseDouble(value) * 100));
+    }
+
+    private static long fingerprint(byte[] data) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : data) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
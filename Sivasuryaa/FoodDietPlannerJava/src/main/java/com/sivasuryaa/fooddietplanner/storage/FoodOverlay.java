@@ -0,0 +1,73 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The user's changes on top of the read-only {@link FoodCatalog}: foods added
+ * or edited, in the order they were saved, and the ids of catalog foods deleted.
+ */
+final class FoodOverlay {
+    /**
+     * Marks a deleted catalog food in {@link #stateOf(EntityId)}
+     */
+    static final Object DELETED = new Object();
+
+    final Map<EntityId, FoodItem> foods;
+    final Set<EntityId> deleted;
+
+    FoodOverlay() {
+        this(new LinkedHashMap<>(), new LinkedHashSet<>());
+    }
+
+    FoodOverlay(Map<EntityId, FoodItem> foods, Set<EntityId> deleted) {
+        this.foods = foods;
+        this.deleted = deleted;
+    }
+
+    FoodOverlay copy() {
+        return new FoodOverlay(new LinkedHashMap<>(foods), new LinkedHashSet<>(deleted));
+    }
+
+    boolean isEmpty() {
+        return foods.isEmpty() && deleted.isEmpty();
+    }
+
+    /**
+     * @return the overlay's food for the id, {@link #DELETED}, or null when the
+     *         catalog food, if any, is used unchanged
+     */
+    Object stateOf(EntityId foodId) {
+        FoodItem food = foods.get(foodId);
+        if (food != null) return food;
+        return deleted.contains(foodId) ? DELETED : null;
+    }
+
+    /**
+     * Set the id to a state returned by {@link #stateOf(EntityId)}; a food moves to the end
+     */
+    void setState(EntityId foodId, Object state) {
+        foods.remove(foodId);
+        deleted.remove(foodId);
+        if (state == DELETED) {
+            deleted.add(foodId);
+        } else if (state != null) {
+            foods.put(foodId, (FoodItem) state);
+        }
+    }
+
+    static boolean sameState(Object a, Object b) {
+        if (a instanceof FoodItem && b instanceof FoodItem) {
+            FoodItem foodA = (FoodItem) a;
+            FoodItem foodB = (FoodItem) b;
+            return foodA.getId().equals(foodB.getId())
+                && FoodSnapshotTable.versionOf(foodA) == FoodSnapshotTable.versionOf(foodB);
+        }
+        return a == b;
+    }
+}
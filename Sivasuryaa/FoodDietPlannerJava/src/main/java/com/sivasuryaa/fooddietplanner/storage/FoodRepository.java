@@ -0,0 +1,58 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodCategory;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Persistence and lookup for the food database.
+ *
+ * Queries return read-only lists that later changes do not affect, so callers
+ * can keep and iterate them without copying.
+ */
+public interface FoodRepository {
+
+    /**
+     * Order of paged searches: by name ignoring case, then by id
+     */
+    Comparator<FoodItem> BY_NAME = Comparator.comparing(FoodItem::getName,
+        Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)).thenComparing(FoodItem::getId);
+
+    /**
+     * @return every food, oldest first; a food moves to the end when it is saved again
+     */
+    List<FoodItem> findAll();
+
+    /**
+     * @return foods whose name or category contains the query, ignoring case
+     */
+    List<FoodItem> search(String query);
+
+    /**
+     * One page of the foods {@link #search(String)} matches, in {@link #BY_NAME} order
+     * @param offset number of matching foods to skip
+     */
+    List<FoodItem> search(String query, int offset, int limit);
+
+    List<FoodItem> findByCategory(FoodCategory category);
+
+    /**
+     * Insert the food, or replace the stored food with the same id
+     */
+    void save(FoodItem food);
+
+    /**
+     * Insert or replace many foods as one change, persisted together
+     */
+    void saveAll(List<FoodItem> foods);
+
+    void delete(EntityId foodId);
+
+    /**
+     * Replace the whole database with the given foods
+     */
+    void replaceAll(List<FoodItem> foods);
+}
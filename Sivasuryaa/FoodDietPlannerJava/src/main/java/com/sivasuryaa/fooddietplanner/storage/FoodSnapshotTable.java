@@ -0,0 +1,148 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned table of the food versions referenced by stored meals.
+ *
+ * A meal stores (food id, version, quantity) references instead of full food
+ * copies. The version is a fingerprint of the food's nutritional content, so
+ * editing a food later does not change the nutrients of meals already logged.
+ * Every reference to the same version resolves to one shared instance. The
+ * table keeps its own copy of each version, so changing the food a version was
+ * registered from does not change it; the shared instances must not be changed
+ * either.
+ */
+public class FoodSnapshotTable {
+    private static final TypeReference<List<FoodSnapshot>> SNAPSHOT_LIST = new TypeReference<>() {};
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<Key, FoodItem> snapshots = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * Add the versions stored in the file; versions already known keep their instance
+     */
+    public void load(ObjectMapper objectMapper, Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        for (FoodSnapshot snapshot : objectMapper.readValue(file.toFile(), SNAPSHOT_LIST)) {
+            snapshots.putIfAbsent(new Key(snapshot.getFood().getId(), snapshot.getVersion()), snapshot.getFood());
+        }
+    }
+
+    /**
+     * Register the food's current content if it is new and return its version
+     */
+    public long register(FoodItem food) {
+        long version = versionOf(food);
+        snapshots.computeIfAbsent(new Key(food.getId(), version), key -> {
+            dirty = true;
+            return copyOf(food);
+        });
+        return version;
+    }
+
+    /**
+     * @return the shared instance for the version, or null if it is unknown
+     */
+    public FoodItem resolve(EntityId foodId, long version) {
+        return snapshots.get(new Key(foodId, version));
+    }
+
+    /**
+     * Register the food and return the shared instance for its content
+     */
+    public FoodItem intern(FoodItem food) {
+        return resolve(food.getId(), register(food));
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Take a copy of the table for writing and clear the dirty flag
+     */
+    public List<FoodSnapshot> snapshotForWrite() {
+        dirty = false;
+        List<FoodSnapshot> result = new ArrayList<>(snapshots.size());
+        snapshots.forEach((key, food) -> result.add(new FoodSnapshot(key.version, food)));
+        return result;
+    }
+
+    private static FoodItem copyOf(FoodItem food) {
+        return new FoodItem(food.getId(), food.getName(), food.getCalories(), food.getProtein(), food.getCarbs(),
+            food.getFat(), food.getFiber(), food.getServingSize(), food.getCategory());
+    }
+
+    /**
+     * 64-bit FNV-1a fingerprint of everything that affects a meal's nutrition
+     */
+    static long versionOf(FoodItem food) {
+        String content = food.getName() + '\u0000' + food.getServingSize() + '\u0000' + food.getCategory()
+            + '\u0000' + food.getCalories() + '\u0000' + food.getProtein() + '\u0000' + food.getCarbs()
+            + '\u0000' + food.getFat() + '\u0000' + food.getFiber();
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : content.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static final class Key {
+        private final EntityId foodId;
+        private final long version;
+
+        Key(EntityId foodId, long version) {
+            this.foodId = foodId;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return version == key.version && foodId.equals(key.foodId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * foodId.hashCode() + Long.hashCode(version);
+        }
+    }
+
+    /**
+     * One persisted food version
+     */
+    public static class FoodSnapshot {
+        private final long version;
+        private final FoodItem food;
+
+        @JsonCreator
+        public FoodSnapshot(@JsonProperty("version") long version,
+                            @JsonProperty("food") FoodItem food) {
+            this.version = version;
+            this.food = food;
+        }
+
+        public long getVersion() { return version; }
+        public FoodItem getFood() { return food; }
+    }
+}
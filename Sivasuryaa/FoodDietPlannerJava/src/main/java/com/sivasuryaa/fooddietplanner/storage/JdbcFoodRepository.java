@@ -0,0 +1,195 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodCategory;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Food database in the {@code foods} table. Insertion order is kept by the
+ * {@code seq} identity column; name and category lookups use their indexes.
+ */
+class JdbcFoodRepository implements FoodRepository {
+    /** Nutrition columns shared with the {@code food_snapshots} table */
+    static final String FOOD_COLUMNS = "name, calories, protein, carbs, fat, fiber, serving_size, category";
+
+    private static final String SELECT_FOODS = "SELECT id, " + FOOD_COLUMNS + " FROM foods";
+
+    private final Connection connection;
+
+    JdbcFoodRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public synchronized List<FoodItem> findAll() {
+        return query(SELECT_FOODS + " ORDER BY seq");
+    }
+
+    @Override
+    public synchronized List<FoodItem> search(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return findAll();
+        }
+
+        List<Object> parameters = new ArrayList<>();
+        return query(SELECT_FOODS + matching(query, parameters) + " ORDER BY seq", parameters.toArray());
+    }
+
+    @Override
+    public synchronized List<FoodItem> search(String query, int offset, int limit) {
+        List<Object> parameters = new ArrayList<>();
+        String where = query == null || query.trim().isEmpty() ? "" : matching(query, parameters);
+        parameters.add(limit);
+        parameters.add(offset);
+        return query(SELECT_FOODS + where + " ORDER BY LOWER(name), id LIMIT ? OFFSET ?", parameters.toArray());
+    }
+
+    /**
+     * @return the WHERE clause for a search, adding its parameters to the list
+     */
+    private static String matching(String query, List<Object> parameters) {
+        String lowercaseQuery = query.toLowerCase().trim();
+        // Category display names are matched here so the database only filters on stored values
+        List<String> categories = Arrays.stream(FoodCategory.values())
+            .filter(category -> category.getDisplayName().toLowerCase().contains(lowercaseQuery))
+            .map(FoodCategory::name)
+            .collect(Collectors.toList());
+        String categoryFilter = categories.isEmpty() ? ""
+            : " OR category IN (" + String.join(", ", Collections.nCopies(categories.size(), "?")) + ")";
+
+        parameters.add("%" + escapeLike(lowercaseQuery) + "%");
+        parameters.addAll(categories);
+        return " WHERE LOWER(name) LIKE ? ESCAPE '\\'" + categoryFilter;
+    }
+
+    @Override
+    public synchronized List<FoodItem> findByCategory(FoodCategory category) {
+        return query(SELECT_FOODS + " WHERE category = ? ORDER BY seq", category.name());
+    }
+
+    @Override
+    public synchronized void save(FoodItem food) {
+        JdbcStorageBackend.inTransaction(connection, "save food " + food.getName(), () -> {
+            // Deleting first gives the food a new sequence number, like appending to a list
+            deleteRow(food.getId());
+            insert(List.of(food));
+        });
+    }
+
+    @Override
+    public synchronized void saveAll(List<FoodItem> foods) {
+        // The last copy of a food listed twice wins, as with saving them one by one
+        Map<EntityId, FoodItem> byId = new LinkedHashMap<>();
+        for (FoodItem food : foods) {
+            byId.remove(food.getId());
+            byId.put(food.getId(), food);
+        }
+        JdbcStorageBackend.inTransaction(connection, "save foods", () -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM foods WHERE id = ?")) {
+                for (EntityId foodId : byId.keySet()) {
+                    statement.setString(1, foodId.toString());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            insert(new ArrayList<>(byId.values()));
+        });
+    }
+
+    @Override
+    public synchronized void delete(EntityId foodId) {
+        JdbcStorageBackend.inTransaction(connection, "delete food", () -> deleteRow(foodId));
+    }
+
+    @Override
+    public synchronized void replaceAll(List<FoodItem> foods) {
+        JdbcStorageBackend.inTransaction(connection, "replace food database", () -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM foods")) {
+                statement.executeUpdate();
+            }
+            insert(foods);
+        });
+    }
+
+    private void insert(List<FoodItem> foods) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO foods (id, " + FOOD_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (FoodItem food : foods) {
+                statement.setString(1, food.getId().toString());
+                bindFood(statement, 2, food);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void deleteRow(EntityId foodId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM foods WHERE id = ?")) {
+            statement.setString(1, foodId.toString());
+            statement.executeUpdate();
+        }
+    }
+
+    private List<FoodItem> query(String sql, Object... parameters) {
+        List<FoodItem> foods = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    foods.add(readFood(resultSet, EntityId.parse(resultSet.getString("id"))));
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcStorageBackend.failure("query food database", e);
+        }
+        return foods;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Bind the {@link #FOOD_COLUMNS} of a food starting at the given parameter index
+     */
+    static void bindFood(PreparedStatement statement, int index, FoodItem food) throws SQLException {
+        statement.setString(index, food.getName());
+        statement.setDouble(index + 1, food.getCalories());
+        statement.setDouble(index + 2, food.getProtein());
+        statement.setDouble(index + 3, food.getCarbs());
+        statement.setDouble(index + 4, food.getFat());
+        statement.setDouble(index + 5, food.getFiber());
+        statement.setString(index + 6, food.getServingSize());
+        statement.setString(index + 7, food.getCategory() != null ? food.getCategory().name() : null);
+    }
+
+    /**
+     * Read the {@link #FOOD_COLUMNS} of the current row
+     */
+    static FoodItem readFood(ResultSet resultSet, EntityId id) throws SQLException {
+        String category = resultSet.getString("category");
+        return new FoodItem(id,
+            resultSet.getString("name"),
+            resultSet.getDouble("calories"),
+            resultSet.getDouble("protein"),
+            resultSet.getDouble("carbs"),
+            resultSet.getDouble("fat"),
+            resultSet.getDouble("fiber"),
+            resultSet.getString("serving_size"),
+            category != null ? FoodCategory.valueOf(category) : null);
+    }
+}
@@ -0,0 +1,326 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Meals in the {@code meals} table, indexed by date and time. As in the file
+ * store, foods are referenced by id and version from {@code meal_items} and
+ * resolved against the {@code food_snapshots} table, which is kept in memory.
+ */
+class JdbcMealRepository implements MealRepository {
+    private static final String DATE_RANGE = " WHERE m.date_time >= ? AND m.date_time < ?";
+    private static final String REVISION_KEY = "meal_revision";
+
+    private final Connection connection;
+    private final FoodSnapshotTable foodSnapshots = new FoodSnapshotTable();
+    private long revision;
+
+    JdbcMealRepository(Connection connection) throws SQLException {
+        this.connection = connection;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT food_id, " + JdbcFoodRepository.FOOD_COLUMNS + " FROM food_snapshots");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                foodSnapshots.register(JdbcFoodRepository.readFood(resultSet, EntityId.parse(resultSet.getString("food_id"))));
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT num_value FROM meta WHERE name = ?")) {
+            statement.setString(1, REVISION_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    revision = resultSet.getLong(1);
+                }
+            }
+        }
+    }
+
+    // Queries
+
+    @Override
+    public List<Meal> getMealsForDate(LocalDate date) {
+        return getMealsBetween(date, date);
+    }
+
+    @Override
+    public synchronized List<Meal> getMealsBetween(LocalDate from, LocalDate to) {
+        return query(DATE_RANGE, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+    }
+
+    @Override
+    public synchronized List<Meal> getAllMeals() {
+        return query("");
+    }
+
+    /**
+     * Keyset pagination on the date index: the page starts right after the
+     * previous one however deep into the history it is
+     */
+    @Override
+    public synchronized List<Meal> getMealsBefore(LocalDateTime dateTime, EntityId mealId, int limit) {
+        if (dateTime == null) {
+            return queryPage("", limit);
+        }
+        Timestamp timestamp = Timestamp.valueOf(dateTime);
+        return queryPage(" WHERE (m.date_time < ? OR (m.date_time = ? AND m.id < ?))", limit,
+            timestamp, timestamp, mealId.toString());
+    }
+
+    @Override
+    public synchronized Meal findById(EntityId mealId) {
+        List<Meal> meals = query(" WHERE m.id = ?", mealId.toString());
+        return meals.isEmpty() ? null : meals.get(0);
+    }
+
+    @Override
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Date queries are served by the index, so there is nothing to warm up; the
+     * listener is notified straight away
+     */
+    @Override
+    public void preload(int monthCount, MealLoadListener listener) {
+        LocalDate today = LocalDate.now();
+        listener.onTodayLoaded(getMealsForDate(today));
+        for (int i = 0; i < monthCount; i++) {
+            listener.onMonthLoaded(YearMonth.from(today).minusMonths(i));
+        }
+    }
+
+    // Mutations
+
+    @Override
+    public synchronized void add(Meal meal) {
+        JdbcStorageBackend.inTransaction(connection, "save meal", () -> {
+            insert(meal);
+            bumpRevision();
+        });
+    }
+
+    /**
+     * Insert many meals in a single transaction
+     */
+    @Override
+    public synchronized void addAll(List<Meal> meals) {
+        JdbcStorageBackend.inTransaction(connection, "save meals", () -> {
+            for (Meal meal : meals) {
+                insert(meal);
+            }
+            bumpRevision();
+        });
+    }
+
+    @Override
+    public synchronized void update(Meal meal) {
+        JdbcStorageBackend.inTransaction(connection, "update meal", () -> {
+            deleteRows(List.of(meal.getId()));
+            insert(meal);
+            bumpRevision();
+        });
+    }
+
+    @Override
+    public synchronized void delete(EntityId mealId) {
+        JdbcStorageBackend.inTransaction(connection, "delete meal", () -> {
+            deleteRows(List.of(mealId));
+            bumpRevision();
+        });
+    }
+
+    @Override
+    public synchronized void deleteAll(List<Meal> meals) {
+        List<EntityId> mealIds = new ArrayList<>(meals.size());
+        meals.forEach(meal -> mealIds.add(meal.getId()));
+        JdbcStorageBackend.inTransaction(connection, "delete meals", () -> {
+            deleteRows(mealIds);
+            bumpRevision();
+        });
+    }
+
+    @Override
+    public synchronized void clear() {
+        JdbcStorageBackend.inTransaction(connection, "delete meals", () -> {
+            execute("DELETE FROM meal_items");
+            execute("DELETE FROM meals");
+            bumpRevision();
+        });
+    }
+
+    private List<Meal> query(String where, Object... parameters) {
+        return queryPage(where, 0, parameters);
+    }
+
+    /**
+     * @param limit maximum number of meals, or 0 for all
+     * @throws java.io.UncheckedIOException if the database cannot be read
+     */
+    private List<Meal> queryPage(String where, int limit, Object... parameters) {
+        Map<EntityId, MealRow> rows = new LinkedHashMap<>();
+        try {
+            try (PreparedStatement statement = prepare(
+                    "SELECT m.id, m.name, m.date_time, m.type FROM meals m" + where
+                    + " ORDER BY m.date_time DESC, m.id DESC" + (limit > 0 ? " LIMIT " + limit : ""),
+                    parameters);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    MealRow row = new MealRow(resultSet);
+                    rows.put(row.id, row);
+                }
+            }
+            if (rows.isEmpty()) return new ArrayList<>();
+
+            String itemsSql;
+            Object[] itemParameters;
+            if (limit > 0) {
+                // The page's own meals, rather than everything the condition matches
+                itemsSql = "SELECT i.meal_id, i.food_id, i.food_version, i.quantity FROM meal_items i"
+                    + " WHERE i.meal_id IN (" + String.join(", ", Collections.nCopies(rows.size(), "?")) + ")"
+                    + " ORDER BY i.meal_id, i.position";
+                itemParameters = rows.keySet().stream().map(EntityId::toString).toArray();
+            } else {
+                itemsSql = "SELECT i.meal_id, i.food_id, i.food_version, i.quantity FROM meal_items i"
+                    + " JOIN meals m ON m.id = i.meal_id" + where + " ORDER BY i.meal_id, i.position";
+                itemParameters = parameters;
+            }
+            try (PreparedStatement statement = prepare(itemsSql, itemParameters);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    MealRow row = rows.get(EntityId.parse(resultSet.getString("meal_id")));
+                    if (row != null) {
+                        row.items.add(new MealRecord.FoodRef(EntityId.parse(resultSet.getString("food_id")),
+                            resultSet.getLong("food_version"), resultSet.getInt("quantity")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw JdbcStorageBackend.failure("query meals", e);
+        }
+
+        List<Meal> meals = new ArrayList<>(rows.size());
+        for (MealRow row : rows.values()) {
+            meals.add(new MealRecord(row.id, row.name, row.dateTime, row.type, row.items, null).toMeal(foodSnapshots));
+        }
+        return meals;
+    }
+
+    private void insert(Meal meal) throws SQLException {
+        MealRecord record = MealRecord.from(meal, foodSnapshots);
+        // Merged with the meal so a rolled back transaction never leaves dangling references
+        mergeSnapshots(record);
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO meals (id, name, date_time, type) VALUES (?, ?, ?, ?)")) {
+            statement.setString(1, record.getId().toString());
+            statement.setString(2, record.getName());
+            statement.setTimestamp(3, Timestamp.valueOf(record.getDateTime()));
+            statement.setString(4, record.getType() != null ? record.getType().name() : null);
+            statement.executeUpdate();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO meal_items (meal_id, position, food_id, food_version, quantity) VALUES (?, ?, ?, ?, ?)")) {
+            int position = 0;
+            for (MealRecord.FoodRef ref : record.getItems()) {
+                statement.setString(1, record.getId().toString());
+                statement.setInt(2, position++);
+                statement.setString(3, ref.getFoodId().toString());
+                statement.setLong(4, ref.getVersion());
+                statement.setInt(5, ref.getQuantity());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void mergeSnapshots(MealRecord record) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO food_snapshots (food_id, version, " + JdbcFoodRepository.FOOD_COLUMNS + ")"
+                + " KEY (food_id, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (MealRecord.FoodRef ref : record.getItems()) {
+                statement.setString(1, ref.getFoodId().toString());
+                statement.setLong(2, ref.getVersion());
+                JdbcFoodRepository.bindFood(statement, 3, foodSnapshots.resolve(ref.getFoodId(), ref.getVersion()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Store the next revision as part of the current transaction
+     */
+    private void bumpRevision() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO meta (name, num_value) KEY (name) VALUES (?, ?)")) {
+            statement.setString(1, REVISION_KEY);
+            statement.setLong(2, revision + 1);
+            statement.executeUpdate();
+        }
+        // Only advanced once the statement succeeded; a later rollback merely invalidates caches
+        revision++;
+    }
+
+    private void deleteRows(List<EntityId> mealIds) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM meal_items WHERE meal_id = ?")) {
+            for (EntityId mealId : mealIds) {
+                statement.setString(1, mealId.toString());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM meals WHERE id = ?")) {
+            for (EntityId mealId : mealIds) {
+                statement.setString(1, mealId.toString());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.executeUpdate();
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Object... parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        return statement;
+    }
+
+    private static class MealRow {
+        private final EntityId id;
+        private final String name;
+        private final LocalDateTime dateTime;
+        private final MealType type;
+        private final List<MealRecord.FoodRef> items = new ArrayList<>();
+
+        MealRow(ResultSet resultSet) throws SQLException {
+            String typeName = resultSet.getString("type");
+            this.id = EntityId.parse(resultSet.getString("id"));
+            this.name = resultSet.getString("name");
+            this.dateTime = resultSet.getTimestamp("date_time").toLocalDateTime();
+            this.type = typeName != null ? MealType.valueOf(typeName) : null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.ActivityLevel;
+import com.sivasuryaa.fooddietplanner.model.DietGoal;
+import com.sivasuryaa.fooddietplanner.model.UserProfile;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Profile stored as the single row of the {@code profile} table
+ */
+class JdbcProfileRepository implements ProfileRepository {
+    private static final int PROFILE_ID = 1;
+
+    private final Connection connection;
+
+    JdbcProfileRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public synchronized UserProfile load() {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT name, age, weight, height, activity_level, diet_goal, target_weight, gender"
+                + " FROM profile WHERE id = ?")) {
+            statement.setInt(1, PROFILE_ID);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) return null;
+                return new UserProfile(
+                    resultSet.getString("name"),
+                    resultSet.getInt("age"),
+                    resultSet.getDouble("weight"),
+                    resultSet.getDouble("height"),
+                    ActivityLevel.valueOf(resultSet.getString("activity_level")),
+                    DietGoal.valueOf(resultSet.getString("diet_goal")),
+                    resultSet.getDouble("target_weight"),
+                    resultSet.getString("gender"));
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Failed to load user profile: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void save(UserProfile profile) {
+        JdbcStorageBackend.inTransaction(connection, "save user profile", () -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "MERGE INTO profile (id, name, age, weight, height, activity_level, diet_goal, target_weight, gender)"
+                    + " KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                statement.setInt(1, PROFILE_ID);
+                statement.setString(2, profile.getName());
+                statement.setInt(3, profile.getAge());
+                statement.setDouble(4, profile.getWeight());
+                statement.setDouble(5, profile.getHeight());
+                statement.setString(6, profile.getActivityLevel().name());
+                statement.setString(7, profile.getDietGoal().name());
+                statement.setDouble(8, profile.getTargetWeight());
+                statement.setString(9, profile.getGender());
+                statement.executeUpdate();
+            }
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.UserProfile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Backend that keeps all data in an embedded, file-based H2 database inside the
+ * data directory. Meals are indexed by date and time and foods by name and
+ * category, so range queries and searches are answered by the database.
+ *
+ * Each repository has its own connection. When the database is first created,
+ * any data found in the file backend is imported, leaving the files in place;
+ * without such data it starts with the foods of the bundled catalog. Foods the
+ * user deletes later stay deleted, even all of them.
+ */
+public class JdbcStorageBackend implements StorageBackend {
+    private static final String DATABASE_NAME = "fooddietplanner";
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS profile (id INT PRIMARY KEY, name VARCHAR, age INT,"
+            + " weight DOUBLE PRECISION, height DOUBLE PRECISION, activity_level VARCHAR(32),"
+            + " diet_goal VARCHAR(32), target_weight DOUBLE PRECISION, gender VARCHAR(32))",
+        "CREATE TABLE IF NOT EXISTS foods (seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+            + " id VARCHAR(64) NOT NULL UNIQUE, name VARCHAR NOT NULL, calories DOUBLE PRECISION,"
+            + " protein DOUBLE PRECISION, carbs DOUBLE PRECISION, fat DOUBLE PRECISION,"
+            + " fiber DOUBLE PRECISION, serving_size VARCHAR, category VARCHAR(32))",
+        "CREATE INDEX IF NOT EXISTS idx_foods_name ON foods (name)",
+        "CREATE INDEX IF NOT EXISTS idx_foods_category ON foods (category)",
+        "CREATE TABLE IF NOT EXISTS meals (id VARCHAR(64) PRIMARY KEY, name VARCHAR,"
+            + " date_time TIMESTAMP NOT NULL, type VARCHAR(32))",
+        "CREATE INDEX IF NOT EXISTS idx_meals_date_time ON meals (date_time)",
+        "CREATE TABLE IF NOT EXISTS food_snapshots (food_id VARCHAR(64) NOT NULL, version BIGINT NOT NULL,"
+            + " name VARCHAR, calories DOUBLE PRECISION, protein DOUBLE PRECISION, carbs DOUBLE PRECISION,"
+            + " fat DOUBLE PRECISION, fiber DOUBLE PRECISION, serving_size VARCHAR, category VARCHAR(32),"
+            + " PRIMARY KEY (food_id, version))",
+        "CREATE TABLE IF NOT EXISTS meal_items (meal_id VARCHAR(64) NOT NULL, position INT NOT NULL,"
+            + " food_id VARCHAR(64) NOT NULL, food_version BIGINT NOT NULL, quantity INT NOT NULL,"
+            + " PRIMARY KEY (meal_id, position))",
+        "CREATE TABLE IF NOT EXISTS meta (name VARCHAR(64) PRIMARY KEY, num_value BIGINT NOT NULL)"
+    };
+
+    private final Path dataDir;
+    private final String url;
+    private Connection schemaConnection;
+    private final List<Connection> repositoryConnections = new ArrayList<>();
+    private JdbcProfileRepository profiles;
+    private JdbcMealRepository meals;
+    private JdbcFoodRepository foods;
+
+    public JdbcStorageBackend(Path dataDir) {
+        this.dataDir = dataDir;
+        this.url = "jdbc:h2:file:" + dataDir.resolve(DATABASE_NAME).toAbsolutePath();
+    }
+
+    /**
+     * Schema creation has to come first and the database serializes the reads
+     * anyway, so opening runs as a single task
+     */
+    @Override
+    public CompletableFuture<Void> open(Executor executor) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                openDatabase();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private void openDatabase() throws IOException {
+        try {
+            schemaConnection = DriverManager.getConnection(url);
+            boolean created = !tableExists("MEALS");
+            try (Statement statement = schemaConnection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            profiles = new JdbcProfileRepository(openConnection());
+            meals = new JdbcMealRepository(openConnection());
+            foods = new JdbcFoodRepository(openConnection());
+            if (created && FileStorageBackend.hasData(dataDir)) {
+                importFileData();
+            } else if (created) {
+                foods.replaceAll(FoodCatalog.openBundled(dataDir).getAll());
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to open database: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ProfileRepository profiles() {
+        return profiles;
+    }
+
+    @Override
+    public MealRepository meals() {
+        return meals;
+    }
+
+    @Override
+    public FoodRepository foods() {
+        return foods;
+    }
+
+    /**
+     * Commits are already durable; a checkpoint additionally bounds recovery work
+     * @throws UncheckedIOException if the checkpoint fails
+     */
+    @Override
+    public void flush() {
+        if (schemaConnection == null) return;
+        try (Statement statement = schemaConnection.createStatement()) {
+            statement.execute("CHECKPOINT");
+        } catch (SQLException e) {
+            throw failure("checkpoint database", e);
+        }
+    }
+
+    /**
+     * Holding every repository keeps this process's writers out, the only ones
+     * the database file lock allows; a synchronous checkpoint then puts all
+     * committed data into the database file
+     */
+    @Override
+    public void runQuiesced(DataDirectoryLock.LockedWork work) throws IOException {
+        synchronized (profiles) {
+            synchronized (meals) {
+                synchronized (foods) {
+                    try (Statement statement = schemaConnection.createStatement()) {
+                        statement.execute("CHECKPOINT SYNC");
+                    } catch (SQLException e) {
+                        throw new IOException("Failed to checkpoint database: " + e.getMessage(), e);
+                    }
+                    work.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * The repositories' connections are closed first: a read leaves its
+     * transaction open, and the shutdown would wait for those to time out
+     */
+    @Override
+    public void close() {
+        if (schemaConnection == null) return;
+        if (profiles != null && meals != null && foods != null) {
+            synchronized (profiles) {
+                synchronized (meals) {
+                    synchronized (foods) {
+                        closeRepositoryConnections();
+                    }
+                }
+            }
+        } else {
+            closeRepositoryConnections();
+        }
+        try (Statement statement = schemaConnection.createStatement()) {
+            // A plain shutdown still compacts for a bounded time. SHUTDOWN COMPACT
+            // rebuilds the file from the open store, which loses the data when the
+            // store was opened from a file that was not closed cleanly, as after a
+            // crash or restoring a backup.
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            System.err.println("Failed to close database: " + e.getMessage());
+        }
+        schemaConnection = null;
+    }
+
+    private Connection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        connection.setAutoCommit(false);
+        repositoryConnections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Closing rolls back whatever the connection has not committed
+     */
+    private void closeRepositoryConnections() {
+        for (Connection connection : repositoryConnections) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to close database connection: " + e.getMessage());
+            }
+        }
+        repositoryConnections.clear();
+    }
+
+    private boolean tableExists(String name) throws SQLException {
+        try (ResultSet tables = schemaConnection.getMetaData().getTables(null, null, name, null)) {
+            return tables.next();
+        }
+    }
+
+    private void importFileData() throws IOException {
+        FileStorageBackend files = new FileStorageBackend(dataDir, StorageFormat.forDirectory(dataDir));
+        try {
+            files.open(Runnable::run).join();
+            UserProfile profile = files.profiles().load();
+            if (profile != null) {
+                profiles.save(profile);
+            }
+            foods.replaceAll(files.foods().findAll());
+            meals.addAll(files.meals().getAllMeals());
+        } finally {
+            files.close();
+        }
+    }
+
+    /**
+     * Run the work as one transaction on the connection, rolling back on failure
+     * @param description what is being done, for the error message
+     * @throws IllegalArgumentException if the work breaks a constraint, such as a
+     *         meal id that is already stored
+     * @throws UncheckedIOException if the work fails otherwise; nothing was changed
+     */
+    static void inTransaction(Connection connection, String description, SqlWork work) {
+        try {
+            work.run();
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            if (e instanceof SQLIntegrityConstraintViolationException) {
+                throw new IllegalArgumentException("Failed to " + description + ": " + e.getMessage(), e);
+            }
+            throw failure(description, e);
+        }
+    }
+
+    /**
+     * @param description what was being done, for the error message
+     */
+    static UncheckedIOException failure(String description, SQLException e) {
+        return new UncheckedIOException(new IOException("Failed to " + description + ": " + e.getMessage(), e));
+    }
+
+    @FunctionalInterface
+    interface SqlWork {
+        void run() throws SQLException;
+    }
+}
@@ -0,0 +1,374 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of meal mutations.
+ *
+ * Every add, update and delete is written as one JSON line, so logging a meal
+ * costs a small append regardless of how long the history is. The owner replays
+ * the journal at load time and, once enough entries accumulate, rotates it aside
+ * while it persists the affected data, then discards the rotated file.
+ * Appends are made durable by a periodic group-committed fsync.
+ *
+ * Several processes may share the journal. Each remembers how far it has read,
+ * so {@link #catchUp} hands over only the entries the others appended since. The
+ * owner holds the {@link DataDirectoryLock} around catching up and appending, and
+ * around rotation, so the entries form one ordered log.
+ */
+public class MealJournal {
+    private static final long SYNC_INTERVAL_MS = 200;
+
+    public enum Operation { ADD, UPDATE, DELETE, CLEAR }
+
+    private final ObjectReader entryReader;
+    private final ObjectWriter entryWriter;
+    private final Path journalFile;
+    private final Path rotatedJournalFile;
+    private final ScheduledExecutorService syncExecutor;
+
+    private FileChannel channel;
+    // Identifies the file the channel is open on, to notice another process rotating it
+    private Object fileIdentity;
+    // Bytes of the open file that have been replayed or written by this process
+    private long position;
+    private int entryCount;
+    private boolean unsynced;
+
+    public MealJournal(ObjectMapper objectMapper, Path journalFile) {
+        this.entryReader = objectMapper.readerFor(Entry.class);
+        this.entryWriter = objectMapper.writerFor(Entry.class);
+        this.journalFile = journalFile;
+        this.rotatedJournalFile = journalFile.resolveSibling(journalFile.getFileName() + ".old");
+        this.syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meal-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.syncExecutor.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replay the rotated journal (if a compaction was interrupted) followed by the
+     * current one, then open the journal for appending
+     * @param consumer receives every entry in write order
+     * @return true if a rotated journal was found and still needs to be compacted
+     */
+    public synchronized boolean open(Consumer<Entry> consumer) throws IOException {
+        boolean interruptedCompaction = Files.exists(rotatedJournalFile);
+        replay(rotatedJournalFile, consumer);
+        openChannel();
+        terminateTornTail();
+        entryCount = readNew(consumer);
+        return interruptedCompaction;
+    }
+
+    /**
+     * Hand over the entries other processes appended since the last call. If the
+     * journal was rotated in the meantime, the rest of the old file is still read
+     * through the open channel before switching to the new one.
+     * @return the number of entries passed to the consumer
+     */
+    public synchronized int catchUp(Consumer<Entry> consumer) throws IOException {
+        if (channel == null) return 0;
+        int count = readNew(consumer);
+        entryCount += count;
+        if (!Objects.equals(fileIdentity, identityOf(journalFile))) {
+            closeChannel();
+            openChannel();
+            entryCount = readNew(consumer);
+            count += entryCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of entries in the current journal file
+     */
+    public synchronized int size() {
+        return entryCount;
+    }
+
+    /**
+     * Append an entry; the caller holds the data directory lock and has caught up
+     * @throws UncheckedIOException if the entry could not be written
+     */
+    public void append(Entry entry) {
+        appendAll(List.of(entry));
+    }
+
+    /**
+     * Append several entries with a single write; the caller holds the data
+     * directory lock and has caught up
+     * @throws UncheckedIOException if the entries could not be written; none of
+     *         them are in the journal then
+     */
+    public synchronized void appendAll(List<Entry> entries) {
+        if (entries.isEmpty()) return;
+        long start = -1;
+        try {
+            if (channel == null) {
+                throw new IOException("Journal is not open");
+            }
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (Entry entry : entries) {
+                lines.write(entryWriter.writeValueAsBytes(entry));
+                lines.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            start = channel.size();
+            long offset = start;
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer, offset);
+            }
+            position = offset;
+            unsynced = true;
+            entryCount += entries.size();
+        } catch (IOException e) {
+            if (start >= 0) {
+                // Drop a partly written line, so later entries are not appended to it
+                try {
+                    channel.truncate(start);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                }
+            }
+            throw new UncheckedIOException("Failed to append to meal journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Move the current entries aside so they survive until {@link #discardRotated()}
+     */
+    public synchronized void rotate() throws IOException {
+        closeChannel();
+        if (Files.exists(rotatedJournalFile)) {
+            // A previous compaction failed; keep its entries ahead of the newer ones
+            Files.write(rotatedJournalFile, Files.readAllBytes(journalFile), StandardOpenOption.APPEND);
+            Files.delete(journalFile);
+        } else {
+            Files.move(journalFile, rotatedJournalFile);
+        }
+        entryCount = 0;
+        openChannel();
+    }
+
+    /**
+     * Delete the rotated entries once everything they describe has been persisted
+     */
+    public void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedJournalFile);
+    }
+
+    /**
+     * Force all appended entries to disk
+     */
+    public void flush() {
+        sync();
+    }
+
+    public synchronized void close() {
+        syncExecutor.shutdown();
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            System.err.println("Failed to close meal journal: " + e.getMessage());
+        }
+    }
+
+    private void sync() {
+        FileChannel target;
+        synchronized (this) {
+            if (!unsynced || channel == null) return;
+            unsynced = false;
+            target = channel;
+        }
+        try {
+            target.force(false);
+        } catch (ClosedChannelException e) {
+            // Rotated or closed concurrently; closing already forced the data
+        } catch (IOException e) {
+            System.err.println("Failed to sync meal journal: " + e.getMessage());
+        }
+    }
+
+    private void replay(Path file, Consumer<Entry> consumer) throws IOException {
+        if (!Files.exists(file)) return;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Entry entry;
+                try {
+                    entry = entryReader.readValue(line);
+                } catch (IOException e) {
+                    // A torn write from a crash; later entries are still valid
+                    System.err.println("Skipping corrupt meal journal entry in " + file.getFileName());
+                    continue;
+                }
+                consumer.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * Read the complete lines between the last read position and the end of the
+     * open file. A trailing partial line is being appended right now and is left
+     * for the next call.
+     */
+    private int readNew(Consumer<Entry> consumer) throws IOException {
+        long size = channel.size();
+        if (size <= position) return 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size - position));
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // Keep reading until the buffer is full
+        }
+        byte[] data = buffer.array();
+        int count = 0;
+        int lineStart = 0;
+        for (int i = 0; i < buffer.position(); i++) {
+            if (data[i] != '\n') continue;
+            if (i > lineStart) {
+                try {
+                    consumer.accept(entryReader.readValue(data, lineStart, i - lineStart));
+                    count++;
+                } catch (IOException e) {
+                    // A torn write from a crash; later entries are still valid
+                    System.err.println("Skipping corrupt meal journal entry in " + journalFile.getFileName());
+                }
+            }
+            lineStart = i + 1;
+        }
+        position += lineStart;
+        return count;
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileIdentity = identityOf(journalFile);
+        position = 0;
+    }
+
+    /**
+     * Terminate a torn trailing line left by a crash so the next entry starts
+     * cleanly; only safe while the data directory lock is held
+     */
+    private void terminateTornTail() throws IOException {
+        long size = channel.size();
+        if (size == 0) return;
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        if (last.get(0) != '\n') {
+            channel.write(ByteBuffer.wrap(new byte[] { '\n' }), size);
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+            unsynced = false;
+        }
+    }
+
+    /**
+     * @return the file system's identity for the file (the inode on Unix), falling
+     *         back to the creation time where there is none; null if it is missing
+     */
+    private static Object identityOf(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A single journaled mutation
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+        private final Operation operation;
+        private final EntityId mealId;
+        private final Meal meal;
+        private final String previousMonth;
+        private final Long revision;
+
+        @JsonCreator
+        public Entry(@JsonProperty("op") Operation operation,
+                     @JsonProperty("mealId") EntityId mealId,
+                     @JsonProperty("meal") Meal meal,
+                     @JsonProperty("previousMonth") String previousMonth,
+                     @JsonProperty("rev") Long revision) {
+            this.operation = operation;
+            this.mealId = mealId;
+            this.meal = meal;
+            this.previousMonth = previousMonth;
+            this.revision = revision;
+        }
+
+        public static Entry add(Meal meal, long revision) {
+            return new Entry(Operation.ADD, meal.getId(), meal, null, revision);
+        }
+
+        public static Entry update(Meal meal, YearMonth previousMonth, long revision) {
+            return new Entry(Operation.UPDATE, meal.getId(), meal, monthName(previousMonth), revision);
+        }
+
+        public static Entry delete(EntityId mealId, YearMonth previousMonth, long revision) {
+            return new Entry(Operation.DELETE, mealId, null, monthName(previousMonth), revision);
+        }
+
+        public static Entry clear(long revision) {
+            return new Entry(Operation.CLEAR, null, null, null, revision);
+        }
+
+        private static String monthName(YearMonth month) {
+            return month != null ? month.toString() : null;
+        }
+
+        @JsonProperty("op")
+        public Operation getOperation() { return operation; }
+        public EntityId getMealId() { return mealId; }
+        public Meal getMeal() { return meal; }
+        public String getPreviousMonth() { return previousMonth; }
+
+        /**
+         * @return the store revision this entry produced; null in journals written before revisions
+         */
+        @JsonProperty("rev")
+        public Long getRevision() { return revision; }
+    }
+}
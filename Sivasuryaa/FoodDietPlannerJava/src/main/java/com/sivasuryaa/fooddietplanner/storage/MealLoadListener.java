@@ -0,0 +1,26 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.Meal;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Callbacks from a background meal history load; invoked on the loading thread
+ */
+public interface MealLoadListener {
+
+    /**
+     * Today's meals have been read, before the rest of the current month
+     * @param meals the meals logged today
+     */
+    default void onTodayLoaded(List<Meal> meals) {
+    }
+
+    /**
+     * A whole month has been loaded and is now served from memory
+     * @param month the loaded month
+     */
+    default void onMonthLoaded(YearMonth month) {
+    }
+}
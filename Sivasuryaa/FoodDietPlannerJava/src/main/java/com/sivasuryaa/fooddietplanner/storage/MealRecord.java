@@ -0,0 +1,207 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealTotals;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Stored form of a meal: foods are referenced by id, version and quantity and
+ * resolved against a {@link FoodSnapshotTable}. Records written before foods
+ * were normalized carry the full {@code foodItems} list instead.
+ *
+ * Normalized records also store the meal's totals, so a meal read from one can
+ * defer building its food list until it is first used.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MealRecord {
+    private final EntityId id;
+    private final String name;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private final LocalDateTime dateTime;
+    private final MealType type;
+    private final List<FoodRef> items;
+    private final List<FoodItem> foodItems;
+    private final MealTotals totals;
+
+    @JsonCreator
+    public MealRecord(@JsonProperty("id") EntityId id,
+                      @JsonProperty("name") String name,
+                      @JsonProperty("dateTime") LocalDateTime dateTime,
+                      @JsonProperty("type") MealType type,
+                      @JsonProperty("items") List<FoodRef> items,
+                      @JsonProperty("foodItems") List<FoodItem> foodItems) {
+        this(id, name, dateTime, type, items, foodItems, null);
+    }
+
+    public MealRecord(EntityId id, String name, LocalDateTime dateTime, MealType type,
+                      List<FoodRef> items, List<FoodItem> foodItems, MealTotals totals) {
+        this.id = id;
+        this.name = name;
+        this.dateTime = dateTime;
+        this.type = type;
+        this.items = items;
+        this.foodItems = foodItems;
+        this.totals = totals;
+    }
+
+    /**
+     * Build the normalized record for a meal, registering any new food versions
+     */
+    public static MealRecord from(Meal meal, FoodSnapshotTable foodSnapshots) {
+        Supplier<List<FoodItem>> unloaded = meal.getUnloadedFoodItems();
+        if (unloaded instanceof StoredFoods && ((StoredFoods) unloaded).foodSnapshots == foodSnapshots) {
+            // Never loaded, so the stored references are still current
+            MealRecord stored = ((StoredFoods) unloaded).record;
+            return new MealRecord(meal.getId(), meal.getName(), meal.getDateTime(), meal.getType(),
+                stored.items, null, meal.getTotals());
+        }
+        List<FoodItem> foods = meal.getFoodItems();
+        List<FoodRef> refs = new ArrayList<>();
+        FoodRef previous = null;
+        for (FoodItem food : foods) {
+            long version = foodSnapshots.register(food);
+            if (previous != null && previous.foodId.equals(food.getId()) && previous.version == version) {
+                // Consecutive repeats of a food collapse into one reference
+                previous.quantity++;
+            } else {
+                previous = new FoodRef(food.getId(), version, 1);
+                refs.add(previous);
+            }
+        }
+        return new MealRecord(meal.getId(), meal.getName(), meal.getDateTime(), meal.getType(), refs, null,
+            MealTotals.of(foods));
+    }
+
+    /**
+     * Materialize the meal, sharing one food instance per referenced version.
+     * A normalized record's food list is only built when the meal first needs it.
+     */
+    public Meal toMeal(FoodSnapshotTable foodSnapshots) {
+        if (items != null) {
+            MealTotals mealTotals = totals != null ? totals : totalsOf(foodSnapshots);
+            return new Meal(id, name, dateTime, type, mealTotals, new StoredFoods(this, foodSnapshots));
+        }
+        List<FoodItem> foods = new ArrayList<>();
+        if (foodItems != null) {
+            for (FoodItem food : foodItems) {
+                foods.add(foodSnapshots.intern(food));
+            }
+        }
+        return new Meal(id, name, dateTime, foods, type);
+    }
+
+    private List<FoodItem> resolveFoods(FoodSnapshotTable foodSnapshots) {
+        List<FoodItem> foods = new ArrayList<>();
+        for (FoodRef ref : items) {
+            FoodItem food = foodSnapshots.resolve(ref.foodId, ref.version);
+            if (food == null) {
+                System.err.println("Meal " + id + " references unknown food " + ref.foodId);
+                continue;
+            }
+            for (int i = 0; i < ref.quantity; i++) {
+                foods.add(food);
+            }
+        }
+        return foods;
+    }
+
+    /**
+     * Totals for records stored before totals were, summed without building the list
+     */
+    private MealTotals totalsOf(FoodSnapshotTable foodSnapshots) {
+        double calories = 0, protein = 0, carbs = 0, fat = 0, fiber = 0;
+        int count = 0;
+        for (FoodRef ref : items) {
+            FoodItem food = foodSnapshots.resolve(ref.foodId, ref.version);
+            if (food == null) continue;
+            for (int i = 0; i < ref.quantity; i++) {
+                calories += food.getCalories();
+                protein += food.getProtein();
+                carbs += food.getCarbs();
+                fat += food.getFat();
+                fiber += food.getFiber();
+            }
+            count += ref.quantity;
+        }
+        return new MealTotals(calories, protein, carbs, fat, fiber, count);
+    }
+
+    /**
+     * @return true if a referenced food version is missing from the table
+     */
+    public boolean hasUnknownFoods(FoodSnapshotTable foodSnapshots) {
+        if (items == null) return false;
+        for (FoodRef ref : items) {
+            if (foodSnapshots.resolve(ref.foodId, ref.version) == null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the record still embeds full food copies
+     */
+    @JsonIgnore
+    public boolean isLegacy() {
+        return items == null && foodItems != null;
+    }
+
+    public EntityId getId() { return id; }
+    public String getName() { return name; }
+    public LocalDateTime getDateTime() { return dateTime; }
+    public MealType getType() { return type; }
+    public List<FoodRef> getItems() { return items; }
+    public List<FoodItem> getFoodItems() { return foodItems; }
+    public MealTotals getTotals() { return totals; }
+
+    /**
+     * Food list of a meal read from a normalized record, resolved on first use
+     */
+    private static final class StoredFoods implements Supplier<List<FoodItem>> {
+        private final MealRecord record;
+        private final FoodSnapshotTable foodSnapshots;
+
+        StoredFoods(MealRecord record, FoodSnapshotTable foodSnapshots) {
+            this.record = record;
+            this.foodSnapshots = foodSnapshots;
+        }
+
+        @Override
+        public List<FoodItem> get() {
+            return record.resolveFoods(foodSnapshots);
+        }
+    }
+
+    /**
+     * Reference to a quantity of one food version
+     */
+    public static class FoodRef {
+        private final EntityId foodId;
+        private final long version;
+        private int quantity;
+
+        @JsonCreator
+        public FoodRef(@JsonProperty("foodId") EntityId foodId,
+                       @JsonProperty("version") long version,
+                       @JsonProperty("quantity") int quantity) {
+            this.foodId = foodId;
+            this.version = version;
+            this.quantity = Math.max(quantity, 1);
+        }
+
+        public EntityId getFoodId() { return foodId; }
+        public long getVersion() { return version; }
+        public int getQuantity() { return quantity; }
+    }
+}
@@ -0,0 +1,85 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Persistence and date-based lookup for logged meals.
+ *
+ * Queries return read-only lists that later changes do not affect, so callers
+ * can keep and iterate them without copying. A change that cannot be persisted
+ * throws {@link java.io.UncheckedIOException} and leaves the meals as they were.
+ */
+public interface MealRepository {
+
+    /**
+     * Order of {@link #getMealsBefore}: by date and time, newest first, then by id
+     */
+    Comparator<Meal> NEWEST_FIRST = Comparator.comparing(Meal::getDateTime).thenComparing(Meal::getId).reversed();
+
+    List<Meal> getMealsForDate(LocalDate date);
+
+    /**
+     * @return meals whose date falls within the inclusive range
+     */
+    List<Meal> getMealsBetween(LocalDate from, LocalDate to);
+
+    List<Meal> getAllMeals();
+
+    /**
+     * One page of the history in {@link #NEWEST_FIRST} order, reading only as
+     * many months as the page reaches into
+     * @param dateTime date and time of the last meal of the previous page, or null for the first page
+     * @param mealId id of the last meal of the previous page; ignored for the first page
+     * @return at most limit meals following that meal
+     */
+    List<Meal> getMealsBefore(LocalDateTime dateTime, EntityId mealId, int limit);
+
+    /**
+     * @return the meal with the id, or null if there is none
+     */
+    Meal findById(EntityId mealId);
+
+    /**
+     * @return a number that grows with every change to the stored meals and survives restarts
+     */
+    long getRevision();
+
+    /**
+     * Make the most recent months quick to query; intended to run on a background thread
+     * @param monthCount number of months to load, counting the current one
+     * @param listener receives progress callbacks on the calling thread
+     */
+    void preload(int monthCount, MealLoadListener listener);
+
+    /**
+     * @throws IllegalArgumentException if a meal with the same id is already stored
+     */
+    void add(Meal meal);
+
+    /**
+     * Add many meals as one change, persisted together; nothing is added if any
+     * of them fails
+     * @throws IllegalArgumentException if a meal's id is already stored or repeats within the list
+     */
+    void addAll(List<Meal> meals);
+
+    void update(Meal meal);
+
+    void delete(EntityId mealId);
+
+    /**
+     * Remove many meals, as returned by a query, as one change persisted together
+     */
+    void deleteAll(List<Meal> meals);
+
+    /**
+     * Remove every meal
+     */
+    void clear();
+}
@@ -0,0 +1,1271 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Meal storage partitioned into one file per month.
+ *
+ * Only the months that are actually queried are loaded, and they are held in a
+ * size-bounded LRU so resident memory depends on the recently used window rather
+ * than on the whole history. Mutations go to the {@link MealJournal} before they
+ * are made in memory, so a change that cannot be journaled is not made at all;
+ * when the journal grows large, relative to the dirty months it would take to
+ * write back, they are written and the journal is discarded.
+ * All partition file writes run in order on a single background thread.
+ *
+ * Partitions store foods as references into a shared {@link FoodSnapshotTable}
+ * rather than as full copies; partitions written with embedded foods are
+ * rewritten in the background the first time the store is opened.
+ *
+ * The month of every meal is kept in an index, stored beside the partitions
+ * by a compaction at most every few seconds and by the last one on close, so
+ * looking a meal up by id reads at most the one month that holds it, and an
+ * unknown id reads nothing. An index left behind by an older revision is
+ * rebuilt from the partitions when the store is opened.
+ *
+ * A month whose file cannot be read to the end is kept read-only with the meals
+ * that could be read: changes to it are refused, and it is never written back,
+ * so the meals that could not be read stay in the file for repair.
+ *
+ * Months older than a configurable age form a cold tier: they are kept
+ * GZIP-compressed under {@code archive/}, read only when a query reaches them,
+ * and only a couple of them stay cached at a time.
+ *
+ * Other processes may use the same directory. Every write holds the
+ * {@link DataDirectoryLock} and first applies what the others journaled, and
+ * partition content is taken when the write runs rather than when it is queued,
+ * so no process overwrites changes it has not seen.
+ */
+public class MealStore implements MealRepository {
+    private static final TypeReference<List<Meal>> MEAL_LIST = new TypeReference<>() {};
+    private static final TypeReference<List<MealRecord>> RECORD_LIST = new TypeReference<>() {};
+    private static final int COMPACTION_THRESHOLD = 500;
+    public static final int DEFAULT_CACHED_MONTHS = 12;
+    public static final int DEFAULT_ARCHIVE_AFTER_MONTHS = 3;
+    private static final int MAX_CACHED_ARCHIVED_MONTHS = 2;
+    private static final String ARCHIVE_DIR = "archive";
+    private static final String ARCHIVE_SUFFIX = ".gz";
+    private static final String FOOD_SNAPSHOTS_SUFFIX = "-foods";
+    private static final String NORMALIZED_MARKER = ".normalized";
+    private static final String REVISION_FILE = ".revision";
+    private static final String INDEX_FILE = ".index";
+    private static final int INDEX_VERSION = 1;
+    // Rewriting the whole index on every compaction would dominate a bulk import
+    private static final long INDEX_WRITE_INTERVAL_MS = 5_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StorageFormat format;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader mealReader;
+    private final ObjectWriter recordsWriter;
+    private final Path partitionDir;
+    private final String foodSnapshotsName;
+    private final FoodSnapshotTable foodSnapshots = new FoodSnapshotTable();
+    private final MealJournal journal;
+    private final DataDirectoryLock lock;
+    private final Path archiveDir;
+    private final int maxCachedMonths;
+    private final int archiveAfterMonths;
+    private final ExecutorService writer;
+
+    // Access-ordered so iteration starts at the least recently used month
+    private final LinkedHashMap<YearMonth, Partition> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Month of every meal, cached or not; the partition stays the authority on
+    // whether the meal is still there
+    private final Map<EntityId, YearMonth> monthById = new HashMap<>();
+    private final Map<YearMonth, List<Meal>> queuedWrites = new HashMap<>();
+    private final NavigableSet<YearMonth> months = new TreeSet<>();
+    private final Set<YearMonth> loadingMonths = new HashSet<>();
+    private List<Meal> todayPreview;
+    private boolean compactionRunning;
+    private long revision;
+    // Revision and time of the index last read or written by this process
+    private long indexedRevision = -1;
+    private long indexWrittenAt;
+    // Set once journaled changes were applied to a month that could not be read;
+    // they exist nowhere else, so the journal is no longer discarded
+    private boolean keepJournal;
+
+    public MealStore(StorageFormat format, Path partitionDir, Path journalFile) {
+        this(format, partitionDir, journalFile, DataDirectoryLock.forDirectory(partitionDir.getParent()),
+            DEFAULT_CACHED_MONTHS, DEFAULT_ARCHIVE_AFTER_MONTHS);
+    }
+
+    /**
+     * @param lock the lock shared by everything that writes to the data directory
+     * @param maxCachedMonths number of months kept in memory
+     * @param archiveAfterMonths months older than this many months are archived; 0 disables the archive
+     */
+    public MealStore(StorageFormat format, Path partitionDir, Path journalFile, DataDirectoryLock lock,
+                     int maxCachedMonths, int archiveAfterMonths) {
+        this.format = format;
+        this.objectMapper = format.createMapper();
+        this.mealReader = objectMapper.readerFor(MealRecord.class);
+        this.recordsWriter = objectMapper.writerFor(RECORD_LIST);
+        this.partitionDir = partitionDir;
+        this.foodSnapshotsName = partitionDir.getFileName() + FOOD_SNAPSHOTS_SUFFIX;
+        this.archiveDir = partitionDir.resolve(ARCHIVE_DIR);
+        // The journal is line-framed, so it always stays JSON
+        this.journal = new MealJournal(StorageFormat.JSON.createMapper(), journalFile);
+        this.lock = lock;
+        this.maxCachedMonths = maxCachedMonths;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meal-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Discover the existing partitions and replay the journal; no meals are loaded
+     * beyond the months the journal touches
+     * @param legacyFile a single-file meal history to split into partitions, if present
+     */
+    public void open(Path legacyFile) throws IOException {
+        lock.run(() -> openLocked(legacyFile));
+    }
+
+    private synchronized void openLocked(Path legacyFile) throws IOException {
+        Files.createDirectories(archiveDir);
+        format.migrate(partitionDir.getParent(), foodSnapshotsName);
+        foodSnapshots.load(objectMapper, foodSnapshotsFile());
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(partitionDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".") || Files.isDirectory(file)) continue;
+                int dot = name.lastIndexOf('.');
+                try {
+                    YearMonth month = YearMonth.parse(dot > 0 ? name.substring(0, dot) : name);
+                    if (!name.endsWith("." + format.getExtension())) {
+                        format.migrate(partitionDir, month.toString());
+                    }
+                    months.add(month);
+                } catch (DateTimeParseException e) {
+                    if (!name.endsWith(".tmp")) {
+                        System.err.println("Ignoring unexpected file in meal storage: " + name);
+                    }
+                }
+            }
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(archiveDir, "*" + ARCHIVE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String partitionName = name.substring(0, name.length() - ARCHIVE_SUFFIX.length());
+                int dot = partitionName.lastIndexOf('.');
+                try {
+                    YearMonth month = YearMonth.parse(dot > 0 ? partitionName.substring(0, dot) : partitionName);
+                    if (!partitionName.endsWith("." + format.getExtension())) {
+                        migrateArchive(file, month, partitionName.substring(dot + 1));
+                    }
+                    months.add(month);
+                } catch (DateTimeParseException e) {
+                    System.err.println("Ignoring unexpected file in meal archive: " + name);
+                }
+            }
+        }
+
+        boolean migrated = legacyFile != null && Files.exists(legacyFile);
+        if (migrated) {
+            migrateLegacyFile(legacyFile);
+        }
+
+        Path revisionFile = partitionDir.resolve(REVISION_FILE);
+        if (Files.exists(revisionFile)) {
+            try {
+                revision = Long.parseLong(Files.readString(revisionFile).trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring corrupt meal revision file");
+            }
+        }
+
+        // The journal is replayed on top of the index, as it is on top of the partitions
+        if (migrated || !readIndex()) {
+            rebuildIndex();
+        }
+
+        if (journal.open(entry -> replay(entry, true)) || journal.size() >= COMPACTION_THRESHOLD) {
+            queueCompaction();
+        }
+
+        if (!Files.exists(partitionDir.resolve(NORMALIZED_MARKER))) {
+            List<YearMonth> candidates = new ArrayList<>(months);
+            writer.execute(() -> normalizeEmbeddedFoods(candidates));
+        }
+
+        List<YearMonth> allMonths = new ArrayList<>(months);
+        writer.execute(() -> movePartitionsToTier(allMonths));
+    }
+
+    // Queries
+
+    @Override
+    public synchronized List<Meal> getMealsForDate(LocalDate date) {
+        if (todayPreview != null && date.equals(LocalDate.now()) && loadingMonths.contains(YearMonth.from(date))) {
+            // The rest of the month is still streaming in; today is already complete
+            return todayPreview;
+        }
+        return getMealsBetween(date, date);
+    }
+
+    /**
+     * @return meals whose date falls within the inclusive range, loading only the
+     *         months it covers. Months wholly inside the range are shared, not copied.
+     */
+    @Override
+    public synchronized List<Meal> getMealsBetween(LocalDate from, LocalDate to) {
+        List<List<Meal>> segments = new ArrayList<>();
+        List<YearMonth> range = new ArrayList<>(months.subSet(YearMonth.from(from), true, YearMonth.from(to), true));
+        for (YearMonth month : range) {
+            List<Meal> view = partition(month).view();
+            if (!month.atDay(1).isBefore(from) && !month.atEndOfMonth().isAfter(to)) {
+                segments.add(view);
+                continue;
+            }
+            List<Meal> inRange = new ArrayList<>();
+            for (Meal meal : view) {
+                LocalDate date = meal.getDateTime().toLocalDate();
+                if (!date.isBefore(from) && !date.isAfter(to)) {
+                    inRange.add(meal);
+                }
+            }
+            segments.add(Collections.unmodifiableList(inRange));
+        }
+        return ConcatenatedList.of(segments);
+    }
+
+    /**
+     * @return every meal in the history; months outside the cache are read and evicted again
+     */
+    @Override
+    public synchronized List<Meal> getAllMeals() {
+        List<List<Meal>> segments = new ArrayList<>();
+        for (YearMonth month : new ArrayList<>(months)) {
+            segments.add(partition(month).view());
+        }
+        return ConcatenatedList.of(segments);
+    }
+
+    /**
+     * Walks the months backwards from the previous page's month, so a page only
+     * loads the months it takes meals from
+     */
+    @Override
+    public synchronized List<Meal> getMealsBefore(LocalDateTime dateTime, EntityId mealId, int limit) {
+        NavigableSet<YearMonth> candidates = dateTime == null ? months : months.headSet(YearMonth.from(dateTime), true);
+        List<Meal> page = new ArrayList<>();
+        for (YearMonth month : new ArrayList<>(candidates.descendingSet())) {
+            for (Meal meal : partition(month).sortedMeals()) {
+                if (dateTime != null && !isBefore(meal, dateTime, mealId)) continue;
+                page.add(meal);
+                if (page.size() == limit) return Collections.unmodifiableList(page);
+            }
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    private static boolean isBefore(Meal meal, LocalDateTime dateTime, EntityId mealId) {
+        int comparison = meal.getDateTime().compareTo(dateTime);
+        return comparison < 0 || comparison == 0 && meal.getId().compareTo(mealId) < 0;
+    }
+
+    @Override
+    public synchronized Meal findById(EntityId mealId) {
+        YearMonth month = locate(mealId, null);
+        return month != null ? partition(month).meals.get(mealId) : null;
+    }
+
+    private boolean contains(EntityId mealId) {
+        return findById(mealId) != null;
+    }
+
+    /**
+     * Load the most recent months newest first, streaming each partition so that
+     * today's meals are published before the rest of the current month is parsed.
+     * Intended to run on a background thread; queries for a month that is being
+     * loaded wait for it instead of reading the file a second time.
+     * @param monthCount number of months to load, counting the current one
+     * @param listener receives progress callbacks on the calling thread
+     */
+    @Override
+    public void preload(int monthCount, MealLoadListener listener) {
+        LocalDate today = LocalDate.now();
+        YearMonth currentMonth = YearMonth.from(today);
+
+        for (int i = 0; i < monthCount; i++) {
+            YearMonth month = currentMonth.minusMonths(i);
+            boolean isCurrentMonth = i == 0;
+
+            boolean available;
+            boolean needsRead;
+            List<Meal> availableToday = null;
+            synchronized (this) {
+                available = months.contains(month);
+                needsRead = available && !cache.containsKey(month)
+                    && !queuedWrites.containsKey(month) && !loadingMonths.contains(month);
+                if (needsRead) {
+                    loadingMonths.add(month);
+                } else {
+                    // Nothing to stream: empty, cached, pending a write, or loaded elsewhere
+                    if (available) {
+                        partition(month);
+                    }
+                    if (isCurrentMonth) {
+                        availableToday = getMealsForDate(today);
+                    }
+                }
+            }
+            if (!needsRead) {
+                if (availableToday != null) {
+                    listener.onTodayLoaded(availableToday);
+                }
+                if (available) {
+                    listener.onMonthLoaded(month);
+                }
+                continue;
+            }
+
+            Partition partition = new Partition();
+            List<Meal> todaysMeals = new ArrayList<>();
+            boolean[] todayPublished = { !isCurrentMonth };
+            try {
+                // Partitions are written newest first, so today's meals come at the head
+                partition.dirty = readPartition(month, meal -> {
+                    partition.add(meal);
+                    if (todayPublished[0]) return;
+                    LocalDate date = meal.getDateTime().toLocalDate();
+                    if (date.equals(today)) {
+                        todaysMeals.add(meal);
+                    } else if (date.isBefore(today)) {
+                        todayPublished[0] = true;
+                        publishToday(todaysMeals, listener);
+                    }
+                });
+                if (!todayPublished[0]) {
+                    publishToday(todaysMeals, listener);
+                }
+            } catch (IOException e) {
+                quarantine(month, partition, e);
+            } finally {
+                synchronized (this) {
+                    loadingMonths.remove(month);
+                    if (isCurrentMonth) {
+                        todayPreview = null;
+                    }
+                    if (!cache.containsKey(month)) {
+                        install(month, partition);
+                    }
+                    notifyAll();
+                }
+            }
+            listener.onMonthLoaded(month);
+        }
+    }
+
+    @Override
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    private void publishToday(List<Meal> todaysMeals, MealLoadListener listener) {
+        synchronized (this) {
+            todayPreview = List.copyOf(todaysMeals);
+        }
+        listener.onTodayLoaded(new ArrayList<>(todaysMeals));
+    }
+
+    // Mutations
+
+    @Override
+    public void add(Meal meal) {
+        mutate(() -> {
+            if (contains(meal.getId())) {
+                throw new IllegalArgumentException("A meal with id " + meal.getId() + " already exists");
+            }
+            requireIntact(YearMonth.from(meal.getDateTime()));
+            journal.append(MealJournal.Entry.add(meal, revision + 1));
+            revision++;
+            put(meal);
+        });
+    }
+
+    @Override
+    public void addAll(List<Meal> meals) {
+        if (meals.isEmpty()) return;
+        mutate(() -> {
+            // Checked before anything changes, so a rejected list adds nothing
+            Set<EntityId> mealIds = new HashSet<>();
+            for (Meal meal : meals) {
+                if (!mealIds.add(meal.getId()) || contains(meal.getId())) {
+                    throw new IllegalArgumentException("A meal with id " + meal.getId() + " already exists");
+                }
+                requireIntact(YearMonth.from(meal.getDateTime()));
+            }
+            List<MealJournal.Entry> entries = new ArrayList<>(meals.size());
+            for (Meal meal : meals) {
+                entries.add(MealJournal.Entry.add(meal, revision + entries.size() + 1));
+            }
+            journal.appendAll(entries);
+            revision += entries.size();
+            meals.forEach(this::put);
+        });
+    }
+
+    @Override
+    public void update(Meal meal) {
+        mutate(() -> {
+            requireIntact(monthById.get(meal.getId()));
+            requireIntact(YearMonth.from(meal.getDateTime()));
+            YearMonth previousMonth = monthOf(meal.getId(), null);
+            journal.append(MealJournal.Entry.update(meal, previousMonth, revision + 1));
+            revision++;
+            remove(meal.getId(), previousMonth);
+            put(meal);
+        });
+    }
+
+    @Override
+    public void delete(EntityId mealId) {
+        mutate(() -> {
+            requireIntact(monthById.get(mealId));
+            YearMonth previousMonth = monthOf(mealId, null);
+            journal.append(MealJournal.Entry.delete(mealId, previousMonth, revision + 1));
+            revision++;
+            remove(mealId, previousMonth);
+        });
+    }
+
+    /**
+     * Meals are removed month by month, so a month that is not cached is read once
+     * however many of its meals go
+     */
+    @Override
+    public void deleteAll(List<Meal> meals) {
+        if (meals.isEmpty()) return;
+        List<Meal> byMonth = new ArrayList<>(meals);
+        byMonth.sort(Comparator.comparing(meal -> YearMonth.from(meal.getDateTime())));
+        mutate(() -> {
+            List<MealJournal.Entry> entries = new ArrayList<>(byMonth.size());
+            Map<EntityId, YearMonth> removals = new LinkedHashMap<>();
+            for (Meal meal : byMonth) {
+                requireIntact(monthById.get(meal.getId()));
+                requireIntact(YearMonth.from(meal.getDateTime()));
+                YearMonth previousMonth = monthOf(meal.getId(), YearMonth.from(meal.getDateTime()));
+                if (previousMonth != null && removals.putIfAbsent(meal.getId(), previousMonth) == null) {
+                    entries.add(MealJournal.Entry.delete(meal.getId(), previousMonth, revision + entries.size() + 1));
+                }
+            }
+            journal.appendAll(entries);
+            revision += entries.size();
+            removals.forEach(this::remove);
+        });
+    }
+
+    /**
+     * Remove every meal and partition
+     */
+    @Override
+    public void clear() {
+        mutate(() -> {
+            // Other processes drop their copies when they read this entry, and so
+            // does this one on reopening if deleting the files fails halfway
+            journal.append(MealJournal.Entry.clear(revision + 1));
+            revision++;
+            clearState();
+            deletePartitionFiles();
+        });
+    }
+
+    /**
+     * Apply the meal changes other processes have journaled since the last call
+     * @return the number of journal entries applied
+     */
+    public synchronized int applyExternalChanges() {
+        try {
+            return catchUp();
+        } catch (IOException e) {
+            System.err.println("Failed to read meal journal: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Force the journal to disk and wait for queued partition writes
+     */
+    public void flush() {
+        journal.flush();
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Failed to flush meal partitions: " + e.getCause().getMessage());
+        }
+    }
+
+    public void close() {
+        flush();
+        synchronized (this) {
+            if (indexedRevision != revision && !months.isEmpty()) {
+                compactionRunning = true;
+                writer.execute(() -> compact(true));
+            }
+        }
+        flush();
+        writer.shutdown();
+        journal.close();
+    }
+
+    /**
+     * Apply a change while holding the data directory lock, after the entries other
+     * processes journaled, so that the journal stays a single ordered log
+     * @throws UncheckedIOException if the lock cannot be taken or the journal cannot
+     *         be read; nothing is changed then
+     */
+    private void mutate(Runnable change) {
+        try {
+            lock.run(() -> {
+                synchronized (this) {
+                    catchUp();
+                    change.run();
+                    compactIfNeeded();
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update meals: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @throws IOException if the journal cannot be read; a change based on what
+     *         was read so far could overwrite the unread ones
+     */
+    private int catchUp() throws IOException {
+        return journal.catchUp(entry -> replay(entry, false));
+    }
+
+    // Partition management
+
+    private Partition partition(YearMonth month) {
+        awaitLoading(month);
+        Partition partition = cache.get(month);
+        if (partition != null) return partition;
+
+        partition = new Partition();
+        List<Meal> queued = queuedWrites.get(month);
+        if (queued != null) {
+            queued.forEach(partition::add);
+        } else if (months.contains(month)) {
+            try {
+                partition.dirty = readPartition(month, partition::add);
+            } catch (IOException e) {
+                quarantine(month, partition, e);
+            }
+        }
+        install(month, partition);
+        return partition;
+    }
+
+    private void install(YearMonth month, Partition partition) {
+        partition.meals.keySet().forEach(id -> monthById.put(id, month));
+        cache.put(month, partition);
+        evictColdPartitions();
+    }
+
+    /**
+     * Stream a partition file meal by meal rather than binding the whole array at once
+     * @return true if the file still embeds full food copies and should be rewritten
+     * @throws IOException if the file cannot be read to the end; the meals before
+     *         the failure have been passed on
+     */
+    private boolean readPartition(YearMonth month, Consumer<Meal> consumer) throws IOException {
+        boolean[] embedded = { false };
+        boolean[] reloaded = { false };
+        readRecords(month, record -> {
+            embedded[0] |= record.isLegacy();
+            if (!reloaded[0] && record.hasUnknownFoods(foodSnapshots)) {
+                // Written by another process after food versions this one has not seen
+                reloaded[0] = true;
+                reloadFoodSnapshots();
+            }
+            consumer.accept(record.toMeal(foodSnapshots));
+        });
+        return embedded[0];
+    }
+
+    /**
+     * @throws IOException if the file cannot be read to the end; the records before
+     *         the failure have been passed on
+     */
+    private void readRecords(YearMonth month, Consumer<MealRecord> consumer) throws IOException {
+        try (InputStream in = openPartition(month)) {
+            if (in == null) return;
+            MappingIterator<MealRecord> iterator = mealReader.readValues(in);
+            while (iterator.hasNextValue()) {
+                consumer.accept(iterator.nextValue());
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid meal data for " + month + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Keep a month that could not be read completely as read-only; writing it back
+     * would replace the file with only the meals that were read
+     */
+    private void quarantine(YearMonth month, Partition partition, IOException error) {
+        System.err.println("Failed to load meals for " + month + ", keeping them read-only: " + error.getMessage());
+        partition.readError = error;
+        partition.dirty = false;
+    }
+
+    /**
+     * @throws UncheckedIOException if the month could not be read completely
+     */
+    private void requireIntact(YearMonth month) {
+        if (month == null || !months.contains(month)) return;
+        IOException readError = partition(month).readError;
+        if (readError != null) {
+            throw new UncheckedIOException("Meals for " + month + " could not be read and cannot be changed", readError);
+        }
+    }
+
+    private void awaitLoading(YearMonth month) {
+        while (loadingMonths.contains(month)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void evictColdPartitions() {
+        int archivedCount = (int) cache.keySet().stream().filter(this::isArchived).count();
+        Iterator<Map.Entry<YearMonth, Partition>> iterator = cache.entrySet().iterator();
+        while ((cache.size() > maxCachedMonths || archivedCount > MAX_CACHED_ARCHIVED_MONTHS) && iterator.hasNext()) {
+            Map.Entry<YearMonth, Partition> eldest = iterator.next();
+            boolean archived = isArchived(eldest.getKey());
+            if (cache.size() <= maxCachedMonths && !archived) {
+                // Only the archived months are over their own, smaller limit
+                continue;
+            }
+            if (archived) {
+                archivedCount--;
+            }
+            Partition partition = eldest.getValue();
+            if (partition.dirty) {
+                // Its changes are journaled too, but writing keeps the journal replay bounded
+                queueWrite(eldest.getKey(), partition);
+            }
+            iterator.remove();
+        }
+    }
+
+    private void put(Meal meal) {
+        YearMonth month = YearMonth.from(meal.getDateTime());
+        YearMonth previousMonth = monthById.get(meal.getId());
+        if (previousMonth != null && !previousMonth.equals(month)) {
+            // A meal lives in exactly one month; never leave a copy behind in another
+            remove(meal.getId(), null);
+        }
+        Partition partition = partition(month);
+        partition.add(meal);
+        markChanged(partition);
+        monthById.put(meal.getId(), month);
+        months.add(month);
+    }
+
+    /**
+     * @return the month the meal was removed from, or null if it was not stored
+     */
+    private YearMonth remove(EntityId mealId, YearMonth hint) {
+        YearMonth month = locate(mealId, hint);
+        monthById.remove(mealId);
+        if (month == null) return null;
+
+        Partition partition = partition(month);
+        if (!partition.meals.containsKey(mealId)) return null;
+        partition.remove(mealId);
+        markChanged(partition);
+        return month;
+    }
+
+    private void markChanged(Partition partition) {
+        if (partition.readError == null) {
+            partition.dirty = true;
+        } else {
+            // Only replayed entries get here; mutations check requireIntact first
+            keepJournal = true;
+        }
+    }
+
+    /**
+     * @return the month that holds the meal, or null if it is not stored
+     */
+    private YearMonth monthOf(EntityId mealId, YearMonth hint) {
+        YearMonth month = locate(mealId, hint);
+        return month != null && partition(month).meals.containsKey(mealId) ? month : null;
+    }
+
+    /**
+     * @return the month the index names for the meal, or else the hint if that month
+     *         holds it; the index covers every month, so no other month is read
+     */
+    private YearMonth locate(EntityId mealId, YearMonth hint) {
+        YearMonth month = monthById.get(mealId);
+        if (month != null && months.contains(month)) return month;
+        if (hint != null && months.contains(hint) && partition(hint).meals.containsKey(mealId)) return hint;
+        return null;
+    }
+
+    /**
+     * @param opening true while the store is being opened, false when applying
+     *                entries another process appended
+     */
+    private void replay(MealJournal.Entry entry, boolean opening) {
+        Long entryRevision = entry.getRevision();
+        revision = entryRevision != null ? Math.max(revision, entryRevision) : revision + 1;
+        if (entry.getOperation() == MealJournal.Operation.CLEAR) {
+            clearState();
+            if (opening) {
+                // A crash may have left partitions from before the clear; later meals follow in the journal
+                deletePartitionFiles();
+            }
+            return;
+        }
+        YearMonth hint = entry.getPreviousMonth() != null ? YearMonth.parse(entry.getPreviousMonth()) : null;
+        remove(entry.getMealId(), hint);
+        if (entry.getOperation() != MealJournal.Operation.DELETE && entry.getMeal() != null) {
+            put(entry.getMeal());
+        }
+    }
+
+    // Compaction
+
+    private void compactIfNeeded() {
+        int journalSize = journal.size();
+        if (journalSize < COMPACTION_THRESHOLD || compactionRunning) return;
+        // Writing back rewrites whole months, so a bulk import into a large month waits
+        // until the journal is half its size; each meal is then rewritten a few times at most
+        int dirtyMeals = 0;
+        for (Partition partition : cache.values()) {
+            if (partition.dirty) {
+                dirtyMeals += partition.meals.size();
+            }
+        }
+        if (journalSize >= dirtyMeals / 2) {
+            queueCompaction();
+        }
+    }
+
+    private void clearState() {
+        // Whatever could not be read is gone with the rest
+        keepJournal = false;
+        cache.clear();
+        monthById.clear();
+        months.clear();
+        queuedWrites.clear();
+    }
+
+    private void queueCompaction() {
+        compactionRunning = true;
+        writer.execute(() -> compact(false));
+    }
+
+    /**
+     * Write back every month with journaled changes, then discard the journal. The
+     * lock is held throughout, so other processes never find the journal rotated
+     * while its partitions are still being written.
+     * @param writeIndex whether to store the index even if it was stored only recently
+     */
+    private void compact(boolean writeIndex) {
+        try {
+            lock.run(() -> {
+                Map<YearMonth, List<MealRecord>> writes = new LinkedHashMap<>();
+                Map<YearMonth, List<Meal>> queued;
+                Map<EntityId, YearMonth> index;
+                long compactedRevision;
+                boolean discardJournal;
+                synchronized (this) {
+                    catchUp();
+                    journal.rotate();
+                    cache.forEach((month, partition) -> {
+                        if (!partition.dirty) return;
+                        // Queued like an evicted month, so a reload before the file is written reads the snapshot
+                        List<Meal> snapshot = partition.sortedMeals();
+                        queuedWrites.put(month, snapshot);
+                        partition.dirty = false;
+                        if (partition.meals.isEmpty()) {
+                            months.remove(month);
+                        }
+                    });
+                    queued = new HashMap<>(queuedWrites);
+                    queued.forEach((month, snapshot) -> writes.put(month, toRecords(snapshot)));
+                    boolean indexDue = writeIndex
+                        || System.currentTimeMillis() - indexWrittenAt >= INDEX_WRITE_INTERVAL_MS;
+                    index = indexDue ? new HashMap<>(monthById) : null;
+                    compactedRevision = revision;
+                    discardJournal = !keepJournal;
+                }
+                try {
+                    writeFoodSnapshots();
+                    for (Map.Entry<YearMonth, List<MealRecord>> write : writes.entrySet()) {
+                        writePartitionFile(write.getKey(), write.getValue());
+                    }
+                    if (index != null) {
+                        writeIndex(index, compactedRevision);
+                    }
+                    // The rotated entries carry the revision, so it must be stored before they go
+                    writeRevision(compactedRevision);
+                    if (discardJournal) {
+                        journal.discardRotated();
+                    }
+                } finally {
+                    synchronized (this) {
+                        queued.forEach(queuedWrites::remove);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Failed to compact meal journal: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                compactionRunning = false;
+            }
+        }
+    }
+
+    private void queueWrite(YearMonth month, Partition partition) {
+        List<Meal> snapshot = partition.sortedMeals();
+        partition.dirty = false;
+        queuedWrites.put(month, snapshot);
+        if (snapshot.isEmpty()) {
+            months.remove(month);
+        }
+        writer.execute(() -> flushMonth(month));
+    }
+
+    /**
+     * Write a month evicted with unsaved changes. Its content is taken when the
+     * write runs, under the lock and after catching up, rather than when it was
+     * queued, so the write cannot undo changes another process saved meanwhile.
+     */
+    private void flushMonth(YearMonth month) {
+        try {
+            lock.run(() -> {
+                List<Meal> queued;
+                List<MealRecord> records;
+                synchronized (this) {
+                    catchUp();
+                    queued = queuedWrites.get(month);
+                    Partition partition = cache.get(month);
+                    List<Meal> content = partition != null && partition.dirty ? partition.sortedMeals() : queued;
+                    // Otherwise already written by a compaction or dropped by a clear
+                    if (content == null) return;
+                    if (partition != null) {
+                        partition.dirty = false;
+                    }
+                    records = toRecords(content);
+                }
+                try {
+                    writeFoodSnapshots();
+                    writePartitionFile(month, records);
+                } finally {
+                    synchronized (this) {
+                        if (queued != null) {
+                            queuedWrites.remove(month, queued);
+                        }
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Failed to save meals for " + month + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Convert meals to stored records, registering any food versions they introduce
+     */
+    private List<MealRecord> toRecords(List<Meal> meals) {
+        return meals.stream()
+            .map(meal -> MealRecord.from(meal, foodSnapshots))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Write the food snapshot table if it has grown, merged with the versions other
+     * processes stored. Runs under the lock, ahead of the partitions that reference
+     * the new versions.
+     */
+    private void writeFoodSnapshots() throws IOException {
+        if (!foodSnapshots.isDirty()) return;
+        foodSnapshots.load(objectMapper, foodSnapshotsFile());
+        AtomicFiles.write(foodSnapshotsFile(), objectMapper.writeValueAsBytes(foodSnapshots.snapshotForWrite()));
+    }
+
+    private void reloadFoodSnapshots() {
+        try {
+            foodSnapshots.load(objectMapper, foodSnapshotsFile());
+        } catch (IOException e) {
+            System.err.println("Failed to reload meal food snapshots: " + e.getMessage());
+        }
+    }
+
+    private void deletePartitionFiles() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(partitionDir, "*." + format.getExtension());
+             DirectoryStream<Path> archived = Files.newDirectoryStream(archiveDir, "*" + ARCHIVE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            for (Path file : archived) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to delete meal partitions: " + e.getMessage());
+        }
+    }
+
+    private void migrateLegacyFile(Path legacyFile) throws IOException {
+        Map<YearMonth, List<Meal>> byMonth = objectMapper.readValue(legacyFile.toFile(), MEAL_LIST).stream()
+            .collect(Collectors.groupingBy(meal -> YearMonth.from(meal.getDateTime())));
+        for (Map.Entry<YearMonth, List<Meal>> entry : byMonth.entrySet()) {
+            // Merge by id so a migration interrupted half-way can simply run again
+            Map<EntityId, Meal> mealsById = new LinkedHashMap<>();
+            readPartition(entry.getKey(), meal -> mealsById.put(meal.getId(), meal));
+            entry.getValue().forEach(meal -> mealsById.put(meal.getId(), meal));
+            List<Meal> merged = new ArrayList<>(mealsById.values());
+            merged.sort(Comparator.comparing(Meal::getDateTime).reversed());
+            List<MealRecord> records = toRecords(merged);
+            writeFoodSnapshots();
+            writePartitionFile(entry.getKey(), records);
+            months.add(entry.getKey());
+        }
+        Files.delete(legacyFile);
+    }
+
+    /**
+     * Rewrite partitions that still embed full food copies, one month at a time on
+     * the writer thread. Months that are cached or have a write pending are left to
+     * the regular write path, which always stores references.
+     */
+    private void normalizeEmbeddedFoods(List<YearMonth> candidates) {
+        for (YearMonth month : candidates) {
+            try {
+                lock.run(() -> normalizeMonth(month));
+            } catch (IOException e) {
+                System.err.println("Failed to normalize meals for " + month + ": " + e.getMessage());
+                return;
+            }
+        }
+        try {
+            Files.createFile(partitionDir.resolve(NORMALIZED_MARKER));
+        } catch (FileAlreadyExistsException e) {
+            // Another process finished normalizing first
+        } catch (IOException e) {
+            System.err.println("Failed to record meal normalization: " + e.getMessage());
+        }
+    }
+
+    private void normalizeMonth(YearMonth month) throws IOException {
+        List<MealRecord> stored = new ArrayList<>();
+        readRecords(month, stored::add);
+        if (stored.stream().noneMatch(MealRecord::isLegacy)) return;
+
+        List<MealRecord> records;
+        synchronized (this) {
+            if (!months.contains(month) || cache.containsKey(month)
+                    || queuedWrites.containsKey(month) || loadingMonths.contains(month)) {
+                return;
+            }
+            records = stored.stream()
+                .map(record -> MealRecord.from(record.toMeal(foodSnapshots), foodSnapshots))
+                .collect(Collectors.toList());
+        }
+        writeFoodSnapshots();
+        writePartitionFile(month, records);
+    }
+
+    private void writeRevision(long value) throws IOException {
+        AtomicFiles.write(partitionDir.resolve(REVISION_FILE), Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Index
+
+    /**
+     * Read the index stored with the current revision
+     * @return false if there is none, or it belongs to another revision
+     */
+    private boolean readIndex() {
+        Path indexFile = partitionDir.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) return false;
+        Map<EntityId, YearMonth> index = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), BUFFER_SIZE))) {
+            if (in.readInt() != INDEX_VERSION || in.readLong() != revision) return false;
+            for (int monthCount = in.readInt(); monthCount > 0; monthCount--) {
+                YearMonth month = YearMonth.parse(in.readUTF());
+                for (int mealCount = in.readInt(); mealCount > 0; mealCount--) {
+                    EntityId mealId = in.readBoolean() ? EntityId.parse(in.readUTF()) : EntityId.of(in.readLong(), in.readLong());
+                    index.put(mealId, month);
+                }
+            }
+        } catch (IOException | DateTimeParseException e) {
+            System.err.println("Ignoring corrupt meal index: " + e.getMessage());
+            return false;
+        }
+        monthById.putAll(index);
+        indexedRevision = revision;
+        return true;
+    }
+
+    /**
+     * Index the meals of every partition file, once, when no current index is
+     * stored; the meals themselves are not kept
+     */
+    private void rebuildIndex() throws IOException {
+        for (YearMonth month : months) {
+            try {
+                readRecords(month, record -> monthById.put(record.getId(), month));
+            } catch (IOException e) {
+                System.err.println("Failed to index meals for " + month + ": " + e.getMessage());
+            }
+        }
+        if (!months.isEmpty()) {
+            writeIndex(new HashMap<>(monthById), revision);
+        }
+    }
+
+    private void writeIndex(Map<EntityId, YearMonth> index, long indexRevision) throws IOException {
+        Map<YearMonth, List<EntityId>> byMonth = new HashMap<>();
+        index.forEach((mealId, month) -> byMonth.computeIfAbsent(month, ignored -> new ArrayList<>()).add(mealId));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(index.size() * 17 + 64);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(indexRevision);
+            out.writeInt(byMonth.size());
+            for (Map.Entry<YearMonth, List<EntityId>> entry : byMonth.entrySet()) {
+                out.writeUTF(entry.getKey().toString());
+                out.writeInt(entry.getValue().size());
+                for (EntityId mealId : entry.getValue()) {
+                    // Ids that are not UUIDs are kept as text
+                    boolean text = !EntityId.of(mealId.getHigh(), mealId.getLow()).equals(mealId);
+                    out.writeBoolean(text);
+                    if (text) {
+                        out.writeUTF(mealId.toString());
+                    } else {
+                        out.writeLong(mealId.getHigh());
+                        out.writeLong(mealId.getLow());
+                    }
+                }
+            }
+        }
+        AtomicFiles.write(partitionDir.resolve(INDEX_FILE), buffer.toByteArray());
+        synchronized (this) {
+            indexedRevision = indexRevision;
+            indexWrittenAt = System.currentTimeMillis();
+        }
+    }
+
+    private Path foodSnapshotsFile() {
+        return format.resolve(partitionDir.getParent(), foodSnapshotsName);
+    }
+
+    // Hot and cold tiers
+
+    private boolean isArchived(YearMonth month) {
+        return archiveAfterMonths > 0 && month.isBefore(YearMonth.now().minusMonths(archiveAfterMonths));
+    }
+
+    /**
+     * Write a partition to the tier its age belongs to and drop any copy in the other tier
+     */
+    private void writePartitionFile(YearMonth month, List<MealRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            Files.deleteIfExists(partitionFile(month));
+            Files.deleteIfExists(archiveFile(month));
+            return;
+        }
+        byte[] data = recordsWriter.writeValueAsBytes(records);
+        if (isArchived(month)) {
+            AtomicFiles.write(archiveFile(month), gzip(data));
+            Files.deleteIfExists(partitionFile(month));
+        } else {
+            AtomicFiles.write(partitionFile(month), data);
+            Files.deleteIfExists(archiveFile(month));
+        }
+    }
+
+    /**
+     * Open whichever tier holds the partition. A file may move between tiers
+     * concurrently, but it always exists in one before it leaves the other,
+     * so a second pass finds it.
+     * @return the uncompressed content, or null if the month has no file
+     */
+    private InputStream openPartition(YearMonth month) throws IOException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                return new GZIPInputStream(Files.newInputStream(archiveFile(month)), BUFFER_SIZE);
+            } catch (NoSuchFileException e) {
+                // Not archived
+            }
+            try {
+                return new BufferedInputStream(Files.newInputStream(partitionFile(month)), BUFFER_SIZE);
+            } catch (NoSuchFileException e) {
+                // Not hot either
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Move partitions whose age no longer matches their tier, for example the
+     * months that became old enough to archive since the last run
+     */
+    private void movePartitionsToTier(List<YearMonth> candidates) {
+        for (YearMonth month : candidates) {
+            try {
+                lock.run(() -> movePartitionToTier(month));
+            } catch (IOException e) {
+                System.err.println("Failed to move meals for " + month + " between tiers: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void movePartitionToTier(YearMonth month) throws IOException {
+        boolean archived = isArchived(month);
+        Path source = archived ? partitionFile(month) : archiveFile(month);
+        if (!Files.exists(source)) return;
+        if (archived) {
+            AtomicFiles.write(archiveFile(month), gzip(Files.readAllBytes(source)));
+        } else {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(source), BUFFER_SIZE)) {
+                AtomicFiles.write(partitionFile(month), in.readAllBytes());
+            }
+        }
+        Files.delete(source);
+    }
+
+    /**
+     * Re-encode an archived partition written in another storage format
+     */
+    private void migrateArchive(Path file, YearMonth month, String extension) throws IOException {
+        for (StorageFormat source : StorageFormat.values()) {
+            if (source.getExtension().equals(extension)) {
+                JsonNode content;
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+                    content = source.createMapper().readTree(in);
+                }
+                AtomicFiles.write(archiveFile(month), gzip(objectMapper.writeValueAsBytes(content)));
+                Files.delete(file);
+                return;
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer, BUFFER_SIZE)) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private Path partitionFile(YearMonth month) {
+        return format.resolve(partitionDir, month.toString());
+    }
+
+    private Path archiveFile(YearMonth month) {
+        return archiveDir.resolve(month + "." + format.getExtension() + ARCHIVE_SUFFIX);
+    }
+
+    private static class Partition {
+        private final Map<EntityId, Meal> meals = new LinkedHashMap<>();
+        private boolean dirty;
+        // Why the month could not be read completely, or null if it was
+        private IOException readError;
+        // Immutable copies of the meals, in insertion and in NEWEST_FIRST order, shared
+        // by queries until the partition changes
+        private List<Meal> view;
+        private List<Meal> sorted;
+
+        void add(Meal meal) {
+            meals.put(meal.getId(), meal);
+            view = null;
+            sorted = null;
+        }
+
+        void remove(EntityId mealId) {
+            if (meals.remove(mealId) != null) {
+                view = null;
+                sorted = null;
+            }
+        }
+
+        List<Meal> view() {
+            if (view == null) {
+                view = List.copyOf(meals.values());
+            }
+            return view;
+        }
+
+        /**
+         * @return the meals newest first, the order partitions are written and paged in
+         */
+        List<Meal> sortedMeals() {
+            if (sorted == null) {
+                List<Meal> meals = new ArrayList<>(this.meals.values());
+                meals.sort(NEWEST_FIRST);
+                sorted = Collections.unmodifiableList(meals);
+            }
+            return sorted;
+        }
+    }
+}
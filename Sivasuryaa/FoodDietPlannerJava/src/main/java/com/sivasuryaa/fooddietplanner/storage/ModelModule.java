@@ -0,0 +1,475 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.sivasuryaa.fooddietplanner.model.ActivityLevel;
+import com.sivasuryaa.fooddietplanner.model.DietGoal;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodCategory;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealTotals;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+import com.sivasuryaa.fooddietplanner.model.UserProfile;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written serializers and deserializers for the stored model classes.
+ *
+ * They walk the token stream directly instead of going through bean
+ * introspection and creator binding, read timestamps with
+ * {@link TimestampCodec}, and skip the calculated getters (totals, BMI and so
+ * on) that the bean serializer used to write. Unknown fields are ignored, so
+ * files written before are still readable.
+ */
+public class ModelModule extends SimpleModule {
+
+    public ModelModule() {
+        super("FoodDietPlannerModel");
+        addSerializer(FoodItem.class, new FoodItemSerializer());
+        addDeserializer(FoodItem.class, new FoodItemDeserializer());
+        addSerializer(Meal.class, new MealSerializer());
+        addDeserializer(Meal.class, new MealDeserializer());
+        addSerializer(MealRecord.class, new MealRecordSerializer());
+        addDeserializer(MealRecord.class, new MealRecordDeserializer());
+        addSerializer(UserProfile.class, new UserProfileSerializer());
+        addDeserializer(UserProfile.class, new UserProfileDeserializer());
+        addSerializer(FoodOverlay.class, new FoodOverlaySerializer());
+        addDeserializer(FoodOverlay.class, new FoodOverlayDeserializer());
+    }
+
+    // Shared helpers
+
+    private static void writeTimestamp(JsonGenerator gen, String field, LocalDateTime dateTime) throws IOException {
+        if (dateTime == null) return;
+        gen.writeFieldName(field);
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999) {
+            gen.writeString(dateTime.toString());
+            return;
+        }
+        char[] buffer = new char[TimestampCodec.MAX_LENGTH];
+        gen.writeString(buffer, 0, TimestampCodec.format(dateTime, buffer));
+    }
+
+    private static void writeString(JsonGenerator gen, String field, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(field, value);
+        }
+    }
+
+    private static void writeId(JsonGenerator gen, String field, EntityId id) throws IOException {
+        if (id != null) {
+            gen.writeStringField(field, id.toString());
+        }
+    }
+
+    private static void writeEnum(JsonGenerator gen, String field, Enum<?> value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(field, value.name());
+        }
+    }
+
+    private static LocalDateTime readTimestamp(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return TimestampCodec.parse(p.getText());
+        }
+        if (token == JsonToken.VALUE_NULL) return null;
+        // Anything else, such as the array form, is left to the java.time module
+        return ctxt.readValue(p, LocalDateTime.class);
+    }
+
+    private static String readText(JsonParser p) throws IOException {
+        return p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+    }
+
+    private static EntityId readId(JsonParser p) throws IOException {
+        return EntityId.parse(readText(p));
+    }
+
+    private static void expectObject(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            ctxt.handleUnexpectedToken(type, p);
+        }
+    }
+
+    // FoodItem
+
+    static class FoodItemSerializer extends StdSerializer<FoodItem> {
+        FoodItemSerializer() {
+            super(FoodItem.class);
+        }
+
+        @Override
+        public void serialize(FoodItem food, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(food);
+            writeId(gen, "id", food.getId());
+            writeString(gen, "name", food.getName());
+            gen.writeNumberField("calories", food.getCalories());
+            gen.writeNumberField("protein", food.getProtein());
+            gen.writeNumberField("carbs", food.getCarbs());
+            gen.writeNumberField("fat", food.getFat());
+            gen.writeNumberField("fiber", food.getFiber());
+            writeString(gen, "servingSize", food.getServingSize());
+            writeEnum(gen, "category", food.getCategory());
+            gen.writeEndObject();
+        }
+    }
+
+    static class FoodItemDeserializer extends StdDeserializer<FoodItem> {
+        static final FoodItemDeserializer INSTANCE = new FoodItemDeserializer();
+
+        FoodItemDeserializer() {
+            super(FoodItem.class);
+        }
+
+        @Override
+        public FoodItem deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            expectObject(p, ctxt, FoodItem.class);
+            EntityId id = null;
+            String name = null, servingSize = null;
+            double calories = 0, protein = 0, carbs = 0, fat = 0, fiber = 0;
+            FoodCategory category = null;
+            for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "id" -> id = readId(p);
+                    case "name" -> name = readText(p);
+                    case "calories" -> calories = p.getValueAsDouble();
+                    case "protein" -> protein = p.getValueAsDouble();
+                    case "carbs" -> carbs = p.getValueAsDouble();
+                    case "fat" -> fat = p.getValueAsDouble();
+                    case "fiber" -> fiber = p.getValueAsDouble();
+                    case "servingSize" -> servingSize = readText(p);
+                    case "category" -> {
+                        String value = readText(p);
+                        category = value != null ? FoodCategory.fromString(value) : null;
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            return new FoodItem(id, name, calories, protein, carbs, fat, fiber, servingSize, category);
+        }
+    }
+
+    private static List<FoodItem> readFoodItems(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) return null;
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            ctxt.handleUnexpectedToken(List.class, p);
+        }
+        List<FoodItem> foods = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            foods.add(FoodItemDeserializer.INSTANCE.deserialize(p, ctxt));
+        }
+        return foods;
+    }
+
+    // FoodOverlay, the user's changes to the food catalog
+
+    static class FoodOverlaySerializer extends StdSerializer<FoodOverlay> {
+        FoodOverlaySerializer() {
+            super(FoodOverlay.class);
+        }
+
+        @Override
+        public void serialize(FoodOverlay overlay, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(overlay);
+            gen.writeArrayFieldStart("foods");
+            for (FoodItem food : overlay.foods.values()) {
+                provider.findValueSerializer(FoodItem.class).serialize(food, gen, provider);
+            }
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("deleted");
+            for (EntityId foodId : overlay.deleted) {
+                gen.writeString(foodId.toString());
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    static class FoodOverlayDeserializer extends StdDeserializer<FoodOverlay> {
+        FoodOverlayDeserializer() {
+            super(FoodOverlay.class);
+        }
+
+        @Override
+        public FoodOverlay deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            expectObject(p, ctxt, FoodOverlay.class);
+            FoodOverlay overlay = new FoodOverlay();
+            for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "foods" -> {
+                        List<FoodItem> foods = readFoodItems(p, ctxt);
+                        if (foods != null) {
+                            foods.forEach(food -> overlay.foods.put(food.getId(), food));
+                        }
+                    }
+                    case "deleted" -> {
+                        if (p.currentToken() == JsonToken.VALUE_NULL) continue;
+                        if (p.currentToken() != JsonToken.START_ARRAY) {
+                            ctxt.handleUnexpectedToken(List.class, p);
+                        }
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            overlay.deleted.add(EntityId.parse(p.getValueAsString()));
+                        }
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            return overlay;
+        }
+    }
+
+    // Meal
+
+    static class MealSerializer extends StdSerializer<Meal> {
+        MealSerializer() {
+            super(Meal.class);
+        }
+
+        @Override
+        public void serialize(Meal meal, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(meal);
+            writeId(gen, "id", meal.getId());
+            writeString(gen, "name", meal.getName());
+            writeTimestamp(gen, "dateTime", meal.getDateTime());
+            gen.writeArrayFieldStart("foodItems");
+            for (FoodItem food : meal.getFoodItems()) {
+                provider.findValueSerializer(FoodItem.class).serialize(food, gen, provider);
+            }
+            gen.writeEndArray();
+            writeEnum(gen, "type", meal.getType());
+            gen.writeEndObject();
+        }
+    }
+
+    static class MealDeserializer extends StdDeserializer<Meal> {
+        MealDeserializer() {
+            super(Meal.class);
+        }
+
+        @Override
+        public Meal deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            expectObject(p, ctxt, Meal.class);
+            EntityId id = null;
+            String name = null;
+            LocalDateTime dateTime = null;
+            List<FoodItem> foodItems = null;
+            MealType type = null;
+            for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "id" -> id = readId(p);
+                    case "name" -> name = readText(p);
+                    case "dateTime" -> dateTime = readTimestamp(p, ctxt);
+                    case "foodItems" -> foodItems = readFoodItems(p, ctxt);
+                    case "type" -> {
+                        String value = readText(p);
+                        type = value != null ? MealType.fromString(value) : null;
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            return new Meal(id, name, dateTime, foodItems, type);
+        }
+    }
+
+    // MealRecord, the stored form of a meal in partitions
+
+    static class MealRecordSerializer extends StdSerializer<MealRecord> {
+        MealRecordSerializer() {
+            super(MealRecord.class);
+        }
+
+        @Override
+        public void serialize(MealRecord record, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(record);
+            writeId(gen, "id", record.getId());
+            writeString(gen, "name", record.getName());
+            writeTimestamp(gen, "dateTime", record.getDateTime());
+            writeEnum(gen, "type", record.getType());
+            if (record.getItems() != null) {
+                gen.writeArrayFieldStart("items");
+                for (MealRecord.FoodRef ref : record.getItems()) {
+                    gen.writeStartObject();
+                    writeId(gen, "foodId", ref.getFoodId());
+                    gen.writeNumberField("version", ref.getVersion());
+                    gen.writeNumberField("quantity", ref.getQuantity());
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+            MealTotals totals = record.getTotals();
+            if (totals != null) {
+                gen.writeObjectFieldStart("totals");
+                gen.writeNumberField("calories", totals.getCalories());
+                gen.writeNumberField("protein", totals.getProtein());
+                gen.writeNumberField("carbs", totals.getCarbs());
+                gen.writeNumberField("fat", totals.getFat());
+                gen.writeNumberField("fiber", totals.getFiber());
+                gen.writeNumberField("count", totals.getItemCount());
+                gen.writeEndObject();
+            }
+            if (record.getFoodItems() != null) {
+                gen.writeArrayFieldStart("foodItems");
+                for (FoodItem food : record.getFoodItems()) {
+                    provider.findValueSerializer(FoodItem.class).serialize(food, gen, provider);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    static class MealRecordDeserializer extends StdDeserializer<MealRecord> {
+        MealRecordDeserializer() {
+            super(MealRecord.class);
+        }
+
+        @Override
+        public MealRecord deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            expectObject(p, ctxt, MealRecord.class);
+            EntityId id = null;
+            String name = null;
+            LocalDateTime dateTime = null;
+            MealType type = null;
+            List<MealRecord.FoodRef> items = null;
+            List<FoodItem> foodItems = null;
+            MealTotals totals = null;
+            for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "id" -> id = readId(p);
+                    case "name" -> name = readText(p);
+                    case "dateTime" -> dateTime = readTimestamp(p, ctxt);
+                    case "type" -> {
+                        String value = readText(p);
+                        type = value != null ? MealType.fromString(value) : null;
+                    }
+                    case "items" -> items = readFoodRefs(p, ctxt);
+                    case "foodItems" -> foodItems = readFoodItems(p, ctxt);
+                    case "totals" -> totals = readTotals(p, ctxt);
+                    default -> p.skipChildren();
+                }
+            }
+            return new MealRecord(id, name, dateTime, type, items, foodItems, totals);
+        }
+
+        private static MealTotals readTotals(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NULL) return null;
+            expectObject(p, ctxt, MealTotals.class);
+            double calories = 0, protein = 0, carbs = 0, fat = 0, fiber = 0;
+            int count = 0;
+            for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "calories" -> calories = p.getValueAsDouble();
+                    case "protein" -> protein = p.getValueAsDouble();
+                    case "carbs" -> carbs = p.getValueAsDouble();
+                    case "fat" -> fat = p.getValueAsDouble();
+                    case "fiber" -> fiber = p.getValueAsDouble();
+                    case "count" -> count = p.getValueAsInt();
+                    default -> p.skipChildren();
+                }
+            }
+            return new MealTotals(calories, protein, carbs, fat, fiber, count);
+        }
+
+        private static List<MealRecord.FoodRef> readFoodRefs(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NULL) return null;
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                ctxt.handleUnexpectedToken(List.class, p);
+            }
+            List<MealRecord.FoodRef> refs = new ArrayList<>();
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                expectObject(p, ctxt, MealRecord.FoodRef.class);
+                EntityId foodId = null;
+                long version = 0;
+                int quantity = 1;
+                for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                    p.nextToken();
+                    switch (field) {
+                        case "foodId" -> foodId = readId(p);
+                        case "version" -> version = p.getValueAsLong();
+                        case "quantity" -> quantity = p.getValueAsInt(1);
+                        default -> p.skipChildren();
+                    }
+                }
+                refs.add(new MealRecord.FoodRef(foodId, version, quantity));
+            }
+            return refs;
+        }
+    }
+
+    // UserProfile
+
+    static class UserProfileSerializer extends StdSerializer<UserProfile> {
+        UserProfileSerializer() {
+            super(UserProfile.class);
+        }
+
+        @Override
+        public void serialize(UserProfile profile, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(profile);
+            writeString(gen, "name", profile.getName());
+            gen.writeNumberField("age", profile.getAge());
+            gen.writeNumberField("weight", profile.getWeight());
+            gen.writeNumberField("height", profile.getHeight());
+            writeEnum(gen, "activityLevel", profile.getActivityLevel());
+            writeEnum(gen, "dietGoal", profile.getDietGoal());
+            gen.writeNumberField("targetWeight", profile.getTargetWeight());
+            writeString(gen, "gender", profile.getGender());
+            gen.writeEndObject();
+        }
+    }
+
+    static class UserProfileDeserializer extends StdDeserializer<UserProfile> {
+        UserProfileDeserializer() {
+            super(UserProfile.class);
+        }
+
+        @Override
+        public UserProfile deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            expectObject(p, ctxt, UserProfile.class);
+            String name = null, gender = null;
+            int age = 0;
+            double weight = 0, height = 0, targetWeight = 0;
+            ActivityLevel activityLevel = null;
+            DietGoal dietGoal = null;
+            for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "name" -> name = readText(p);
+                    case "age" -> age = p.getValueAsInt();
+                    case "weight" -> weight = p.getValueAsDouble();
+                    case "height" -> height = p.getValueAsDouble();
+                    case "activityLevel" -> {
+                        String value = readText(p);
+                        activityLevel = value != null ? ActivityLevel.fromString(value) : null;
+                    }
+                    case "dietGoal" -> {
+                        String value = readText(p);
+                        dietGoal = value != null ? DietGoal.fromString(value) : null;
+                    }
+                    case "targetWeight" -> targetWeight = p.getValueAsDouble();
+                    case "gender" -> gender = readText(p);
+                    default -> p.skipChildren();
+                }
+            }
+            return new UserProfile(name, age, weight, height, activityLevel, dietGoal, targetWeight, gender);
+        }
+    }
+}
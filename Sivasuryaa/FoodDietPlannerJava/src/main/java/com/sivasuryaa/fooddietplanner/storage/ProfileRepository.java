@@ -0,0 +1,16 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.UserProfile;
+
+/**
+ * Persistence for the single user profile
+ */
+public interface ProfileRepository {
+
+    /**
+     * @return the stored profile, or null if none has been saved yet
+     */
+    UserProfile load();
+
+    void save(UserProfile profile);
+}
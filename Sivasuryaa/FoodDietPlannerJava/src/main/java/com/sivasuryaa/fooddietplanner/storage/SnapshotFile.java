@@ -0,0 +1,43 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A small JSON file holding derived data that can always be recomputed, such as
+ * the dashboard snapshot. Read failures are treated as a missing snapshot.
+ */
+public class SnapshotFile<T> {
+    private final ObjectMapper objectMapper = StorageFormat.JSON.createMapper();
+    private final Path file;
+    private final Class<T> type;
+
+    public SnapshotFile(Path file, Class<T> type) {
+        this.file = file;
+        this.type = type;
+    }
+
+    /**
+     * @return the stored value, or null if there is none or it cannot be read
+     */
+    public T read() {
+        if (!Files.exists(file)) return null;
+        try {
+            return objectMapper.readValue(file.toFile(), type);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable " + file.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void write(T value) {
+        try {
+            AtomicFiles.write(file, objectMapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            System.err.println("Failed to write " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A complete set of repositories over one data directory.
+ *
+ * The backend is chosen by the {@code backend} key of {@code storage.properties}:
+ * {@code file} (the default) keeps data in JSON or Smile files, {@code h2} keeps
+ * it in an embedded H2 database.
+ */
+public interface StorageBackend {
+
+    /**
+     * Load or create the stored data, running independent data sets concurrently
+     * @param executor runs the loading work
+     * @return completes once every repository may be used
+     */
+    CompletableFuture<Void> open(Executor executor);
+
+    ProfileRepository profiles();
+
+    MealRepository meals();
+
+    FoodRepository foods();
+
+    /**
+     * Register a callback for data changed by another process using the same
+     * directory. It runs on a background thread once the changes have been
+     * applied to the repositories. Backends that cannot be shared between
+     * processes never call it.
+     */
+    default void setChangeListener(Runnable listener) {
+    }
+
+    /**
+     * Wait until every change made so far is durable
+     */
+    void flush();
+
+    /**
+     * Flush, then run the work while nothing writes to the data directory, so
+     * its files can be copied as a consistent whole
+     */
+    void runQuiesced(DataDirectoryLock.LockedWork work) throws IOException;
+
+    /**
+     * Flush and release all resources; the backend must not be used afterwards
+     */
+    void close();
+
+    /**
+     * Create the backend configured for a data directory, defaulting to files
+     */
+    static StorageBackend forDirectory(Path dataDir) {
+        String backend = StorageSettings.load(dataDir).getProperty(StorageSettings.BACKEND, "file").trim();
+        if (backend.equalsIgnoreCase("h2")) {
+            return new JdbcStorageBackend(dataDir);
+        }
+        if (!backend.equalsIgnoreCase("file")) {
+            System.err.println("Unknown storage backend '" + backend + "', using files");
+        }
+        return new FileStorageBackend(dataDir, StorageFormat.forDirectory(dataDir));
+    }
+}
@@ -0,0 +1,94 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * On-disk encoding of the data files, selectable per data directory through
+ * the {@code format} key of {@code storage.properties}.
+ *
+ * JSON stays the default. SMILE is Jackson's binary JSON encoding: it shares
+ * repeated field names and string values, so large meal histories are both
+ * smaller and faster to parse. Files written in another format are converted
+ * the first time they are opened.
+ */
+public enum StorageFormat {
+    JSON("json"),
+    SMILE("smile");
+
+    private final String extension;
+
+    StorageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Create a mapper that reads and writes this format with the application's model settings
+     */
+    public ObjectMapper createMapper() {
+        JsonFactory factory = this == SMILE
+            ? SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build()
+            : new JsonFactory();
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(new ModelModule());
+        // Older files contain calculated getter values such as totalCalories
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return mapper;
+    }
+
+    /**
+     * @return the path of the data file with the given base name in this format
+     */
+    public Path resolve(Path dir, String baseName) {
+        return dir.resolve(baseName + "." + extension);
+    }
+
+    /**
+     * Convert a data file written in any other format to this one, if such a file exists
+     * and no file in this format does yet
+     * @return true if a file was converted
+     */
+    public boolean migrate(Path dir, String baseName) throws IOException {
+        Path target = resolve(dir, baseName);
+        if (Files.exists(target)) return false;
+
+        for (StorageFormat source : values()) {
+            Path sourceFile = source.resolve(dir, baseName);
+            if (source != this && Files.exists(sourceFile)) {
+                JsonNode content = source.createMapper().readTree(sourceFile.toFile());
+                AtomicFiles.write(target, createMapper().writeValueAsBytes(content));
+                Files.delete(sourceFile);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the format configured for a data directory, defaulting to JSON
+     */
+    public static StorageFormat forDirectory(Path dataDir) {
+        String value = StorageSettings.load(dataDir).getProperty(StorageSettings.FORMAT, JSON.extension).trim();
+        for (StorageFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value) || format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        System.err.println("Unknown storage format '" + value + "', using JSON");
+        return JSON;
+    }
+}
@@ -0,0 +1,58 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Reads the optional {@code storage.properties} file of a data directory.
+ * Recognized keys are {@code format}, {@code backend},
+ * {@code archiveAfterMonths} and the backup settings read by {@link BackupStore}.
+ */
+final class StorageSettings {
+    static final String FORMAT = "format";
+    static final String BACKEND = "backend";
+    static final String ARCHIVE_AFTER_MONTHS = "archiveAfterMonths";
+    static final String BACKUP_DIR = "backupDir";
+    static final String BACKUP_INTERVAL_HOURS = "backupIntervalHours";
+    static final String BACKUP_KEEP_LAST = "backupKeepLast";
+    static final String BACKUP_KEEP_DAILY = "backupKeepDaily";
+    static final String BACKUP_KEEP_MONTHLY = "backupKeepMonthly";
+
+    private static final String CONFIG_FILE = "storage.properties";
+
+    private StorageSettings() {
+    }
+
+    /**
+     * @return the configured settings, empty if the file is missing or unreadable
+     */
+    static Properties load(Path dataDir) {
+        Properties properties = new Properties();
+        Path configFile = dataDir.resolve(CONFIG_FILE);
+        if (!Files.exists(configFile)) return properties;
+
+        try (Reader reader = Files.newBufferedReader(configFile)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            System.err.println("Failed to read storage settings: " + e.getMessage());
+        }
+        return properties;
+    }
+
+    /**
+     * @return the integer value of the key, or the default if it is missing or malformed
+     */
+    static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid storage setting " + key + "=" + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/**
+ * Fixed-layout codec for the {@code yyyy-MM-dd'T'HH:mm:ss[.SSS[SSS[SSS]]]}
+ * timestamps used in the data files, which is the same text ISO formatting
+ * produces. Every field sits at a known offset, so formatting and parsing are
+ * plain digit arithmetic instead of a pattern-driven formatter.
+ */
+final class TimestampCodec {
+    private static final int SECONDS_LENGTH = 19;
+    static final int MAX_LENGTH = SECONDS_LENGTH + 10;
+
+    private TimestampCodec() {
+    }
+
+    /**
+     * Write the timestamp into a buffer of at least {@link #MAX_LENGTH} characters
+     * @return the number of characters written
+     */
+    static int format(LocalDateTime dateTime, char[] buffer) {
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999) {
+            throw new IllegalArgumentException("Year out of range for data files: " + year);
+        }
+        writeDigits(buffer, 0, year, 4);
+        buffer[4] = '-';
+        writeDigits(buffer, 5, dateTime.getMonthValue(), 2);
+        buffer[7] = '-';
+        writeDigits(buffer, 8, dateTime.getDayOfMonth(), 2);
+        buffer[10] = 'T';
+        writeDigits(buffer, 11, dateTime.getHour(), 2);
+        buffer[13] = ':';
+        writeDigits(buffer, 14, dateTime.getMinute(), 2);
+        buffer[16] = ':';
+        writeDigits(buffer, 17, dateTime.getSecond(), 2);
+
+        int nano = dateTime.getNano();
+        if (nano == 0) return SECONDS_LENGTH;
+        buffer[SECONDS_LENGTH] = '.';
+        // Like ISO formatting, use the shortest of milli, micro or nano precision
+        if (nano % 1_000_000 == 0) {
+            writeDigits(buffer, SECONDS_LENGTH + 1, nano / 1_000_000, 3);
+            return SECONDS_LENGTH + 4;
+        }
+        if (nano % 1_000 == 0) {
+            writeDigits(buffer, SECONDS_LENGTH + 1, nano / 1_000, 6);
+            return SECONDS_LENGTH + 7;
+        }
+        writeDigits(buffer, SECONDS_LENGTH + 1, nano, 9);
+        return MAX_LENGTH;
+    }
+
+    /**
+     * Parse a timestamp, taking the fixed-layout fast path when the text matches it
+     * and falling back to ISO parsing (for example for a missing seconds field) otherwise
+     * @throws IllegalArgumentException if the text is not a timestamp or a field is
+     *         out of range, such as month 13
+     */
+    static LocalDateTime parse(String text) {
+        try {
+            return parseFields(text);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid timestamp: " + text, e);
+        }
+    }
+
+    private static LocalDateTime parseFields(String text) {
+        int length = text.length();
+        boolean fixedLayout = length == SECONDS_LENGTH
+                || ((length == SECONDS_LENGTH + 4 || length == SECONDS_LENGTH + 7 || length == MAX_LENGTH)
+                    && text.charAt(SECONDS_LENGTH) == '.');
+        if (fixedLayout && text.charAt(4) == '-' && text.charAt(7) == '-'
+                && text.charAt(10) == 'T' && text.charAt(13) == ':' && text.charAt(16) == ':') {
+            int year = readDigits(text, 0, 4);
+            int month = readDigits(text, 5, 2);
+            int day = readDigits(text, 8, 2);
+            int hour = readDigits(text, 11, 2);
+            int minute = readDigits(text, 14, 2);
+            int second = readDigits(text, 17, 2);
+            int nano = 0;
+            if (length > SECONDS_LENGTH) {
+                int fractionDigits = length - SECONDS_LENGTH - 1;
+                nano = readDigits(text, SECONDS_LENGTH + 1, fractionDigits);
+                for (int i = fractionDigits; i < 9 && nano >= 0; i++) {
+                    nano *= 10;
+                }
+            }
+            if ((year | month | day | hour | minute | second | nano) >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+            }
+        }
+        return LocalDateTime.parse(text);
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * @return the decimal value, or -1 if any character is not a digit
+     */
+    private static int readDigits(String text, int offset, int width) {
+        int value = 0;
+        for (int i = offset; i < offset + width; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,124 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalescing write-behind layer for whole-file data.
+ *
+ * Callers mark a file dirty along with a way to produce its content. Bursts of
+ * updates (for example dragging a slider) collapse into a single write once the
+ * file has been quiet for a short period, performed on a background thread with
+ * an atomic temp-file-and-rename. A file that keeps changing is still written at
+ * least every {@link #MAX_DELAY_MS} milliseconds.
+ *
+ * The content is produced on the background thread while the data directory lock
+ * is held, so the owner can merge in changes another process made to the file.
+ */
+public class WriteBehindExecutor {
+    private static final long QUIET_PERIOD_MS = 500;
+    private static final long MAX_DELAY_MS = 5000;
+
+    /**
+     * Produces the complete content of a file
+     */
+    @FunctionalInterface
+    public interface Content {
+        byte[] encode() throws IOException;
+    }
+
+    private final DataDirectoryLock lock;
+    private final ScheduledExecutorService executor;
+    private final Map<Path, PendingWrite> pendingWrites = new HashMap<>();
+
+    public WriteBehindExecutor(DataDirectoryLock lock) {
+        this.lock = lock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedule the file to be rewritten
+     * @param file the target data file
+     * @param content produces the complete file content when the write runs
+     */
+    public synchronized void markDirty(Path file, Content content) {
+        long now = System.currentTimeMillis();
+        PendingWrite pending = pendingWrites.computeIfAbsent(file, f -> new PendingWrite(now));
+        pending.content = content;
+        if (pending.task != null) {
+            pending.task.cancel(false);
+        }
+        long delay = Math.max(0, Math.min(QUIET_PERIOD_MS, pending.firstMarked + MAX_DELAY_MS - now));
+        pending.task = executor.schedule(() -> writePending(file), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write every dirty file now and wait until the writes have completed
+     */
+    public void flush() {
+        if (executor.isShutdown()) return;
+        try {
+            executor.submit(this::writeAllPending).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Failed to flush pending writes: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Flush all dirty files and stop the background thread
+     */
+    public void close() {
+        flush();
+        executor.shutdown();
+    }
+
+    private void writeAllPending() {
+        List<Path> files;
+        synchronized (this) {
+            files = new ArrayList<>(pendingWrites.keySet());
+        }
+        for (Path file : files) {
+            writePending(file);
+        }
+    }
+
+    private void writePending(Path file) {
+        Content content;
+        synchronized (this) {
+            PendingWrite pending = pendingWrites.remove(file);
+            if (pending == null) return;
+            pending.task.cancel(false);
+            content = pending.content;
+        }
+        try {
+            lock.run(() -> AtomicFiles.write(file, content.encode()));
+        } catch (IOException e) {
+            System.err.println("Failed to write " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private static class PendingWrite {
+        private final long firstMarked;
+        private Content content;
+        private ScheduledFuture<?> task;
+
+        PendingWrite(long firstMarked) {
+            this.firstMarked = firstMarked;
+        }
+    }
+}
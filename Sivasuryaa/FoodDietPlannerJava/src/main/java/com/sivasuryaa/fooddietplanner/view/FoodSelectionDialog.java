@@ -3,7 +3,9 @@ package com.sivasuryaa.fooddietplanner.view;
 import com.sivasuryaa.fooddietplanner.model.FoodCategory;
 import com.sivasuryaa.fooddietplanner.model.FoodItem;
 import com.sivasuryaa.fooddietplanner.service.DietPlannerService;
+import com.sivasuryaa.fooddietplanner.service.TaskScheduler;
 import com.sivasuryaa.fooddietplanner.util.FormatUtils;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
@@ -16,8 +18,10 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
+import javafx.util.StringConverter;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -34,6 +38,7 @@ public class FoodSelectionDialog extends Dialog<List<FoodItem>> {
     private final Label nutritionSummaryLabel;
     private final ObservableList<FoodItemSelection> allFoodSelections;
     private final FilteredList<FoodItemSelection> filteredFoodSelections;
+    private List<FoodItem> preSelectedFoods;
     
     public FoodSelectionDialog(DietPlannerService dietPlannerService) {
         this.dietPlannerService = dietPlannerService;
@@ -68,7 +73,7 @@ public class FoodSelectionDialog extends Dialog<List<FoodItem>> {
         
         filteredFoodSelections = new FilteredList<>(allFoodSelections);
         SortedList<FoodItemSelection> sortedFoodSelections = new SortedList<>(filteredFoodSelections);
-        sortedFoodSelections.comparatorProperty().bind(foodListView.comparatorProperty());
+        sortedFoodSelections.setComparator(Comparator.comparing(selection -> selection.getFoodItem().getName()));
         
         foodListView.setItems(sortedFoodSelections);
         foodListView.setCellFactory(CheckBoxListCell.forListView(
@@ -101,14 +106,26 @@ public class FoodSelectionDialog extends Dialog<List<FoodItem>> {
         initModality(Modality.APPLICATION_MODAL);
     }
     
+    /**
+     * Read the food database off the FX thread; the list fills in once it arrives
+     */
     private void loadFoodItems() {
-        List<FoodItem> foodItems = dietPlannerService.getAllFoodItems();
-        
-        List<FoodItemSelection> selections = foodItems.stream()
-            .map(FoodItemSelection::new)
-            .collect(Collectors.toList());
-        
-        allFoodSelections.setAll(selections);
+        dietPlannerService.getScheduler()
+            .submit(TaskScheduler.Lane.INTERACTIVE, dietPlannerService::getFoodDatabase)
+            .whenComplete((foodItems, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    System.err.println("Failed to load food database: " + error.getMessage());
+                    return;
+                }
+                List<FoodItemSelection> selections = foodItems.stream()
+                    .map(FoodItemSelection::new)
+                    .collect(Collectors.toList());
+
+                allFoodSelections.setAll(selections);
+                if (preSelectedFoods != null) {
+                    setPreSelectedFoods(preSelectedFoods);
+                }
+            }));
     }
     
     private VBox createDialogContent() {
@@ -269,6 +286,8 @@ public class FoodSelectionDialog extends Dialog<List<FoodItem>> {
      * Pre-select food items that were already selected
      */
     public void setPreSelectedFoods(List<FoodItem> preSelectedFoods) {
+        // Applied again once the food database has loaded
+        this.preSelectedFoods = preSelectedFoods;
         allFoodSelections.forEach(selection -> {
             boolean shouldBeSelected = preSelectedFoods.contains(selection.getFoodItem());
             selection.setSelected(shouldBeSelected);
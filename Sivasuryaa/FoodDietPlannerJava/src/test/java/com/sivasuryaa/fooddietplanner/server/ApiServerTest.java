@@ -0,0 +1,166 @@
+package com.sivasuryaa.fooddietplanner.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+import com.sivasuryaa.fooddietplanner.service.DietPlannerService;
+import com.sivasuryaa.fooddietplanner.storage.StorageFormat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiServerTest {
+    private static final ObjectMapper MAPPER = StorageFormat.JSON.createMapper();
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    @TempDir
+    static Path home;
+
+    private static DietPlannerService service;
+    private static ApiServer server;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        // The service takes its data directory from the home directory when it is loaded
+        System.setProperty("user.home", home.toString());
+        service = new DietPlannerService();
+        service.whenReady().join();
+        server = new ApiServer(service, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void createdMealCanBeReadUpdatedAndDeleted() throws Exception {
+        HttpResponse<String> created = send("POST", "/api/meals", mealJson("Porridge"));
+        assertEquals(201, created.statusCode());
+        String path = created.headers().firstValue("Location").orElseThrow();
+
+        assertEquals("Porridge", MAPPER.readTree(send("GET", path, null).body()).get("name").asText());
+        assertEquals(200, send("PUT", path, mealJson("Granola")).statusCode());
+        assertEquals("Granola", MAPPER.readTree(send("GET", path, null).body()).get("name").asText());
+        assertEquals(204, send("DELETE", path, null).statusCode());
+        assertEquals(404, send("GET", path, null).statusCode());
+    }
+
+    @Test
+    void invalidMealIsRejected() throws Exception {
+        assertError(400, send("POST", "/api/meals", "{\"name\":"));
+        assertError(400, send("POST", "/api/meals", "null"));
+        assertError(400, send("POST", "/api/meals", "{\"type\":\"LUNCH\"}"));
+
+        Map<String, Object> withoutType = MAPPER.readValue(mealJson("Soup"), Map.class);
+        withoutType.remove("type");
+        assertError(400, send("POST", "/api/meals", MAPPER.writeValueAsString(withoutType)));
+    }
+
+    @Test
+    void unknownMealIsNotFound() throws Exception {
+        String path = "/api/meals/" + EntityId.generate();
+        assertError(404, send("GET", path, null));
+        assertError(404, send("PUT", path, mealJson("Ghost")));
+        assertError(404, send("DELETE", path, null));
+        // Updating must not have created it
+        assertError(404, send("GET", path, null));
+    }
+
+    @Test
+    void unknownPathIsNotFound() throws Exception {
+        assertError(404, send("GET", "/api/nothing", null));
+        assertError(404, send("GET", "/api/meals/a/b", null));
+        assertError(404, send("GET", "/api/totals", null));
+    }
+
+    @Test
+    void invalidParametersAreRejected() throws Exception {
+        assertError(400, send("GET", "/api/meals?date=yesterday", null));
+        assertError(400, send("GET", "/api/foods?limit=ten", null));
+        assertError(400, send("GET", "/api/totals/2024-13-01", null));
+    }
+
+    @Test
+    void validProfileIsSaved() throws Exception {
+        HttpResponse<String> response = send("PUT", "/api/profile", MAPPER.writeValueAsString(profile()));
+        assertEquals(200, response.statusCode());
+        assertEquals(72.5, MAPPER.readTree(send("GET", "/api/profile", null).body()).get("weight").asDouble());
+    }
+
+    @Test
+    void incompleteOrOutOfRangeProfileIsRejected() throws Exception {
+        Map<String, Object> missing = profile();
+        missing.remove("dietGoal");
+        assertError(400, send("PUT", "/api/profile", MAPPER.writeValueAsString(missing)));
+
+        Map<String, Object> unknownChoice = profile();
+        unknownChoice.put("activityLevel", "LAZY");
+        assertError(400, send("PUT", "/api/profile", MAPPER.writeValueAsString(unknownChoice)));
+
+        Map<String, Object> tooYoung = profile();
+        tooYoung.put("age", 5);
+        assertError(400, send("PUT", "/api/profile", MAPPER.writeValueAsString(tooYoung)));
+
+        Map<String, Object> tooTall = profile();
+        tooTall.put("height", 400);
+        assertError(400, send("PUT", "/api/profile", MAPPER.writeValueAsString(tooTall)));
+
+        assertError(400, send("PUT", "/api/profile", "[]"));
+    }
+
+    private static Map<String, Object> profile() {
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("name", "Test");
+        profile.put("age", 30);
+        profile.put("weight", 72.5);
+        profile.put("height", 175);
+        profile.put("targetWeight", 70);
+        profile.put("activityLevel", "MODERATE");
+        profile.put("dietGoal", "Maintenance");
+        return profile;
+    }
+
+    private static String mealJson(String name) throws IOException {
+        return MAPPER.writeValueAsString(new Meal(name, LocalDateTime.of(2024, 3, 4, 8, 30), MealType.BREAKFAST));
+    }
+
+    private static void assertError(int status, HttpResponse<String> response) throws IOException {
+        assertEquals(status, response.statusCode(), response.body());
+        JsonNode body = MAPPER.readTree(response.body());
+        assertTrue(body.hasNonNull("error"), response.body());
+    }
+
+    private static HttpResponse<String> send(String method, String path, String body)
+            throws IOException, InterruptedException {
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+            .header("Content-Type", "application/json")
+            .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,86 @@
+package com.sivasuryaa.fooddietplanner.service;
+
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Measures {@link MealIngest} with several producers adding meals at once: how
+ * fast the pipeline accepts changes, and how fast they are applied and stored.
+ * Acceptance is limited by the ring buffer, applying by the meal store, which
+ * journals every meal and rewrites the months it touches.
+ *
+ * Runs against a new data directory in a temporary home, so real data is not
+ * touched. Not a unit test; run it with {@code mvn test-compile}, then
+ * {@code mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.sivasuryaa.fooddietplanner.service.MealIngestBenchmark [-Dexec.args="50000 4"]}
+ * as a separate command, since arguments given in the same build would also
+ * reach the food catalog compiler.
+ */
+public class MealIngestBenchmark {
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int mealsPerProducer = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int producerCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        // Read once, when the service class is first used
+        System.setProperty("user.home", Files.createTempDirectory("meal-ingest-benchmark").toString());
+
+        DietPlannerService service = new DietPlannerService();
+        service.whenReady().join();
+        MealIngest ingest = service.getMealIngest();
+        List<List<Meal>> work = createMeals(service.getFoodDatabase(), producerCount, mealsPerProducer);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (List<Meal> meals : work) {
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                meals.forEach(ingest::addMeal);
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long publishedNanos = System.nanoTime() - startNanos;
+        ingest.flush().get();
+        long appliedNanos = System.nanoTime() - startNanos;
+
+        int total = producerCount * mealsPerProducer;
+        System.out.printf("%d meals from %d producers%n", total, producerCount);
+        System.out.printf("accepted in %6d ms  %,10.0f/s%n", publishedNanos / 1_000_000, total / (publishedNanos / 1e9));
+        System.out.printf("applied  in %6d ms  %,10.0f/s%n", appliedNanos / 1_000_000, total / (appliedNanos / 1e9));
+        System.out.println("stored " + service.getAllMeals().size() + " meals");
+        service.shutdown();
+    }
+
+    private static List<List<Meal>> createMeals(List<FoodItem> foods, int producerCount, int mealsPerProducer) {
+        LocalDateTime start = LocalDateTime.now().minusYears(2);
+        List<List<Meal>> work = new ArrayList<>(producerCount);
+        for (int p = 0; p < producerCount; p++) {
+            List<Meal> meals = new ArrayList<>(mealsPerProducer);
+            for (int i = 0; i < mealsPerProducer; i++) {
+                Meal meal = new Meal("Meal " + p + "-" + i, start.plusMinutes(p * 37L + i * 7L), MealType.SNACK);
+                meal.addFoodItem(foods.get(i % foods.size()));
+                meals.add(meal);
+            }
+            work.add(meals);
+        }
+        return work;
+    }
+}
@@ -0,0 +1,190 @@
+package com.sivasuryaa.fooddietplanner.service;
+
+import com.sivasuryaa.fooddietplanner.service.TaskScheduler.Lane;
+import com.sivasuryaa.fooddietplanner.service.TaskScheduler.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskSchedulerTest {
+    private static final int WORKERS = 4;
+
+    private final TaskScheduler scheduler = new TaskScheduler(WORKERS);
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        gate.countDown();
+        scheduler.shutdown(5000);
+    }
+
+    @Test
+    void savingAndBulkLanesRunOneTaskAtATimeInOrder() throws Exception {
+        for (Lane lane : List.of(Lane.PERSISTENCE, Lane.BULK)) {
+            AtomicInteger active = new AtomicInteger();
+            AtomicInteger maxActive = new AtomicInteger();
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            List<Task<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                int index = i;
+                tasks.add(scheduler.execute(lane, () -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    sleep(2);
+                    order.add(index);
+                    active.decrementAndGet();
+                }));
+            }
+            for (Task<Void> task : tasks) {
+                task.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(1, maxActive.get(), lane.name());
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), order, lane.name());
+        }
+    }
+
+    @Test
+    void interactiveTasksRunInParallel() throws Exception {
+        CountDownLatch allStarted = new CountDownLatch(WORKERS);
+        List<Task<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < WORKERS; i++) {
+            tasks.add(scheduler.submit(Lane.INTERACTIVE, () -> {
+                allStarted.countDown();
+                return allStarted.await(5, TimeUnit.SECONDS);
+            }));
+        }
+        for (Task<Boolean> task : tasks) {
+            assertTrue(task.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void keyedTaskReplacesThePendingOne() throws Exception {
+        blockAllWorkers();
+        Task<String> first = scheduler.submit(Lane.REFRESH, "dashboard", () -> "first");
+        Task<String> second = scheduler.submit(Lane.REFRESH, "dashboard", () -> "second");
+        assertTrue(first.isCancelled());
+
+        gate.countDown();
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void fullScreenLaneDropsItsOldestTask() throws Exception {
+        blockAllWorkers();
+        List<Task<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i <= 64; i++) {
+            tasks.add(scheduler.execute(Lane.REFRESH, () -> { }));
+        }
+        assertTrue(tasks.get(0).isCancelled());
+        assertFalse(tasks.get(1).isCancelled());
+
+        gate.countDown();
+        for (Task<Void> task : tasks.subList(1, tasks.size())) {
+            task.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void executorWorkIsNeverDropped() throws Exception {
+        blockAllWorkers();
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            scheduler.executor(Lane.REFRESH).execute(ran::incrementAndGet);
+        }
+
+        gate.countDown();
+        scheduler.shutdown(5000);
+        assertEquals(100, ran.get());
+    }
+
+    @Test
+    void serialLaneTaskCannotWaitForRoomInItsOwnLane() throws Exception {
+        Task<Throwable> task = scheduler.submit(Lane.PERSISTENCE, () -> {
+            try {
+                for (int i = 0; i <= 256; i++) {
+                    scheduler.execute(Lane.PERSISTENCE, () -> { });
+                }
+                return null;
+            } catch (RejectedExecutionException e) {
+                return e;
+            }
+        });
+        assertInstanceOf(RejectedExecutionException.class, task.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void interruptedIdleWorkersKeepWorking() throws Exception {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        runOnEveryWorker(threads);
+        assertEquals(WORKERS, threads.size());
+        threads.forEach(Thread::interrupt);
+        sleep(50);
+
+        assertTrue(threads.stream().allMatch(Thread::isAlive));
+        threads.clear();
+        runOnEveryWorker(threads);
+        assertEquals(WORKERS, threads.size());
+    }
+
+    @Test
+    void submitAfterShutdownIsRejected() {
+        scheduler.shutdown(5000);
+        assertThrows(RejectedExecutionException.class, () -> scheduler.execute(Lane.INTERACTIVE, () -> { }));
+    }
+
+    /**
+     * Keep every worker busy until the gate opens
+     */
+    private void blockAllWorkers() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            scheduler.execute(Lane.INTERACTIVE, () -> {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private void runOnEveryWorker(Set<Thread> threads) throws Exception {
+        CountDownLatch allStarted = new CountDownLatch(WORKERS);
+        List<Task<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < WORKERS; i++) {
+            tasks.add(scheduler.submit(Lane.INTERACTIVE, () -> {
+                threads.add(Thread.currentThread());
+                allStarted.countDown();
+                return allStarted.await(5, TimeUnit.SECONDS);
+            }));
+        }
+        for (Task<Boolean> task : tasks) {
+            assertTrue(task.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
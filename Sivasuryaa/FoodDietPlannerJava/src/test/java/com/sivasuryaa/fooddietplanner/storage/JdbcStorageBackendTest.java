@@ -0,0 +1,164 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcStorageBackendTest {
+    @TempDir
+    Path dir;
+
+    private JdbcStorageBackend backend;
+
+    @AfterEach
+    void closeBackend() {
+        if (backend != null) {
+            backend.close();
+        }
+    }
+
+    @Test
+    void storedMealsSurviveReopening() {
+        open();
+        Meal meal = meal("Oats", 8);
+        backend.meals().add(meal);
+        long revision = backend.meals().getRevision();
+        reopen();
+
+        assertEquals("Oats", backend.meals().findById(meal.getId()).getName());
+        assertEquals(revision, backend.meals().getRevision());
+    }
+
+    @Test
+    void duplicateMealIsRejectedWithoutChangingAnything() {
+        open();
+        Meal meal = meal("Oats", 8);
+        backend.meals().add(meal);
+
+        assertThrows(IllegalArgumentException.class, () -> backend.meals().add(meal));
+        Meal other = meal("Toast", 9);
+        assertThrows(IllegalArgumentException.class, () -> backend.meals().addAll(List.of(other, meal)));
+        assertNull(backend.meals().findById(other.getId()));
+        assertEquals(1, backend.meals().getAllMeals().size());
+    }
+
+    @Test
+    void queryFailuresAreReported() throws SQLException {
+        open();
+        Meal meal = meal("Oats", 8);
+        backend.meals().add(meal);
+        execute("DROP TABLE meal_items");
+
+        assertThrows(UncheckedIOException.class, () -> backend.meals().getAllMeals());
+        assertThrows(UncheckedIOException.class, () -> backend.meals().findById(meal.getId()));
+        assertThrows(UncheckedIOException.class,
+            () -> backend.meals().getMealsBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)));
+    }
+
+    @Test
+    void failedChangeIsReportedAndRolledBack() throws SQLException {
+        open();
+        long revision = backend.meals().getRevision();
+        execute("DROP TABLE meal_items");
+
+        assertThrows(UncheckedIOException.class, () -> backend.meals().add(meal("Oats", 8)));
+        assertEquals(revision, backend.meals().getRevision());
+    }
+
+    @Test
+    void foodQueryFailuresAreReported() throws SQLException {
+        open();
+        execute("DROP TABLE foods");
+
+        assertThrows(UncheckedIOException.class, () -> backend.foods().findAll());
+        assertThrows(UncheckedIOException.class, () -> backend.foods().search("apple"));
+    }
+
+    @Test
+    void starterFoodsAreOnlyAddedToANewDatabase() {
+        open();
+        List<FoodItem> starters = backend.foods().findAll();
+        assertFalse(starters.isEmpty());
+        backend.foods().replaceAll(List.of());
+        reopen();
+        assertTrue(backend.foods().findAll().isEmpty());
+
+        backend.foods().save(starters.get(0));
+        reopen();
+        assertEquals(List.of(starters.get(0).getId()), backend.foods().findAll().stream().map(FoodItem::getId).toList());
+    }
+
+    @Test
+    void copyOfOpenDatabaseKeepsItsDataAcrossCloses() throws IOException {
+        open();
+        List<FoodItem> foods = backend.foods().findAll();
+        List<Meal> meals = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Meal meal = new Meal("Meal " + i, LocalDateTime.of(2020, 1, 1, 8, 0).plusHours(i), MealType.LUNCH);
+            for (int j = 0; j < 3; j++) {
+                meal.addFoodItem(foods.get((i + j) % foods.size()));
+            }
+            meals.add(meal);
+        }
+        backend.meals().addAll(meals);
+        // What a backup or a crash leaves: the file of a database that is still open
+        Path copy = Files.createDirectories(dir.resolve("copy"));
+        backend.runQuiesced(() -> Files.copy(dir.resolve("fooddietplanner.mv.db"), copy.resolve("fooddietplanner.mv.db")));
+        backend.close();
+
+        for (int i = 0; i < 2; i++) {
+            backend = new JdbcStorageBackend(copy);
+            backend.open(Runnable::run).join();
+            assertEquals(meals.size(), backend.meals().getAllMeals().size());
+            backend.close();
+        }
+        backend = null;
+    }
+
+    private void open() {
+        backend = new JdbcStorageBackend(dir);
+        backend.open(Runnable::run).join();
+    }
+
+    private void reopen() {
+        backend.close();
+        open();
+    }
+
+    /**
+     * Run the statement on a connection of its own, as another user of the database would
+     */
+    private void execute(String sql) throws SQLException {
+        String url = "jdbc:h2:file:" + dir.resolve("fooddietplanner").toAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static Meal meal(String name, int hour) {
+        return new Meal(name, LocalDateTime.of(2024, 1, 15, hour, 0), MealType.BREAKFAST);
+    }
+}
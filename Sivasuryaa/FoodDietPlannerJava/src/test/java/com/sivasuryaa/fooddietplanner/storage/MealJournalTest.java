@@ -0,0 +1,129 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MealJournalTest {
+    private static final ObjectMapper MAPPER = StorageFormat.JSON.createMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysEntriesInWriteOrder() throws IOException {
+        Path file = dir.resolve("meals.journal");
+        Meal meal = meal("Breakfast", 8);
+        MealJournal journal = openJournal(file, new ArrayList<>());
+        journal.append(MealJournal.Entry.add(meal, 1));
+        journal.appendAll(List.of(
+            MealJournal.Entry.update(meal, YearMonth.of(2024, 1), 2),
+            MealJournal.Entry.delete(meal.getId(), YearMonth.of(2024, 1), 3)));
+        journal.close();
+
+        List<MealJournal.Entry> replayed = new ArrayList<>();
+        MealJournal reopened = openJournal(file, replayed);
+        reopened.close();
+
+        assertEquals(List.of(MealJournal.Operation.ADD, MealJournal.Operation.UPDATE, MealJournal.Operation.DELETE),
+            replayed.stream().map(MealJournal.Entry::getOperation).toList());
+        assertEquals(List.of(1L, 2L, 3L), replayed.stream().map(MealJournal.Entry::getRevision).toList());
+        assertEquals(meal.getId(), replayed.get(2).getMealId());
+        assertEquals("Breakfast", replayed.get(0).getMeal().getName());
+    }
+
+    @Test
+    void skipsTornTailAndAppendsAfterIt() throws IOException {
+        Path file = dir.resolve("meals.journal");
+        MealJournal journal = openJournal(file, new ArrayList<>());
+        journal.append(MealJournal.Entry.add(meal("Lunch", 12), 1));
+        journal.close();
+        // A crash in the middle of an append
+        Files.writeString(file, "{\"op\":\"ADD\",\"mealId\":\"", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        List<MealJournal.Entry> replayed = new ArrayList<>();
+        MealJournal reopened = openJournal(file, replayed);
+        assertEquals(1, replayed.size());
+        reopened.append(MealJournal.Entry.add(meal("Dinner", 19), 2));
+        reopened.close();
+
+        replayed.clear();
+        openJournal(file, replayed).close();
+        assertEquals(List.of("Lunch", "Dinner"), replayed.stream().map(entry -> entry.getMeal().getName()).toList());
+    }
+
+    @Test
+    void catchUpReadsOnlyWhatOthersAppended() throws IOException {
+        Path file = dir.resolve("meals.journal");
+        MealJournal writer = openJournal(file, new ArrayList<>());
+        MealJournal reader = openJournal(file, new ArrayList<>());
+        writer.append(MealJournal.Entry.add(meal("Snack", 10), 1));
+        writer.append(MealJournal.Entry.add(meal("Snack", 16), 2));
+
+        List<MealJournal.Entry> caughtUp = new ArrayList<>();
+        assertEquals(2, reader.catchUp(caughtUp::add));
+        assertEquals(0, reader.catchUp(caughtUp::add));
+        assertEquals(2, caughtUp.size());
+        writer.close();
+        reader.close();
+    }
+
+    @Test
+    void rotatedJournalIsReplayedBeforeTheCurrentOne() throws IOException {
+        Path file = dir.resolve("meals.journal");
+        MealJournal journal = openJournal(file, new ArrayList<>());
+        journal.append(MealJournal.Entry.add(meal("Old", 8), 1));
+        journal.rotate();
+        journal.append(MealJournal.Entry.add(meal("New", 9), 2));
+        journal.close();
+
+        List<MealJournal.Entry> replayed = new ArrayList<>();
+        MealJournal reopened = new MealJournal(MAPPER, file);
+        // An interrupted compaction still has to write the rotated entries
+        assertTrue(reopened.open(replayed::add));
+        reopened.discardRotated();
+        reopened.close();
+        assertEquals(List.of("Old", "New"), replayed.stream().map(entry -> entry.getMeal().getName()).toList());
+
+        replayed.clear();
+        MealJournal afterDiscard = new MealJournal(MAPPER, file);
+        assertFalse(afterDiscard.open(replayed::add));
+        afterDiscard.close();
+        assertEquals(List.of("New"), replayed.stream().map(entry -> entry.getMeal().getName()).toList());
+    }
+
+    @Test
+    void appendToClosedJournalThrows() throws IOException {
+        MealJournal journal = openJournal(dir.resolve("meals.journal"), new ArrayList<>());
+        journal.close();
+        assertThrows(UncheckedIOException.class, () -> journal.append(MealJournal.Entry.clear(1)));
+    }
+
+    private static MealJournal openJournal(Path file, List<MealJournal.Entry> replayed) throws IOException {
+        MealJournal journal = new MealJournal(MAPPER, file);
+        journal.open(replayed::add);
+        return journal;
+    }
+
+    private static Meal meal(String name, int hour) {
+        return new Meal(name, LocalDateTime.of(2024, 1, 15, hour, 0), MealType.SNACK);
+    }
+}
@@ -0,0 +1,156 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MealStoreTest {
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void releaseLock() {
+        DataDirectoryLock.forDirectory(dir).close();
+    }
+
+    @Test
+    void storesEachMonthInItsOwnFile() throws IOException {
+        MealStore store = openStore();
+        store.addAll(List.of(
+            meal("January", LocalDateTime.of(2024, 1, 31, 20, 0)),
+            meal("February", LocalDateTime.of(2024, 2, 1, 8, 0)),
+            meal("March", LocalDateTime.of(2024, 3, 15, 12, 0))));
+        store.close();
+
+        for (String month : List.of("2024-01", "2024-02", "2024-03")) {
+            assertTrue(Files.exists(partitionFile(YearMonth.parse(month))), month);
+        }
+        MealStore reopened = openStore();
+        assertEquals(List.of("February"), names(reopened.getMealsBetween(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29))));
+        assertEquals(List.of("January"), names(reopened.getMealsForDate(LocalDate.of(2024, 1, 31))));
+        assertEquals(3, reopened.getAllMeals().size());
+        reopened.close();
+    }
+
+    @Test
+    void updateMovesMealToItsNewMonth() throws IOException {
+        MealStore store = openStore();
+        Meal meal = meal("Dinner", LocalDateTime.of(2024, 1, 10, 19, 0));
+        store.add(meal);
+        store.update(new Meal(meal.getId(), "Dinner", LocalDateTime.of(2024, 4, 2, 19, 0), List.of(), MealType.DINNER));
+        store.close();
+
+        MealStore reopened = openStore();
+        assertTrue(reopened.getMealsBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).isEmpty());
+        assertEquals(LocalDateTime.of(2024, 4, 2, 19, 0), reopened.findById(meal.getId()).getDateTime());
+        reopened.close();
+    }
+
+    @Test
+    void rebuildsMissingIndexFromPartitions() throws IOException {
+        MealStore store = openStore();
+        List<Meal> meals = new ArrayList<>();
+        for (int month = 1; month <= 6; month++) {
+            meals.add(meal("Meal " + month, LocalDateTime.of(2023, month, 5, 12, 0)));
+        }
+        store.addAll(meals);
+        store.close();
+        Files.delete(dir.resolve("meals").resolve(".index"));
+
+        MealStore reopened = openStore();
+        for (Meal meal : meals) {
+            assertEquals(meal.getName(), reopened.findById(meal.getId()).getName());
+        }
+        assertNull(reopened.findById(EntityId.generate()));
+        reopened.close();
+        assertTrue(Files.exists(dir.resolve("meals").resolve(".index")));
+    }
+
+    @Test
+    void replaysJournalEntriesNotYetInPartitions() throws IOException {
+        MealStore store = openStore();
+        store.add(meal("Written", LocalDateTime.of(2024, 5, 1, 8, 0)));
+        long revision = store.getRevision();
+        store.close();
+        // What a process that crashed before writing its partitions leaves behind
+        Meal journaled = meal("Journaled", LocalDateTime.of(2024, 5, 2, 8, 0));
+        MealJournal journal = new MealJournal(StorageFormat.JSON.createMapper(), dir.resolve("meals.journal"));
+        journal.open(entry -> { });
+        journal.append(MealJournal.Entry.add(journaled, revision + 1));
+        journal.close();
+
+        MealStore reopened = openStore();
+        assertEquals(revision + 1, reopened.getRevision());
+        assertEquals("Journaled", reopened.findById(journaled.getId()).getName());
+        assertEquals(2, reopened.getMealsBetween(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31)).size());
+        reopened.close();
+    }
+
+    @Test
+    void damagedMonthStaysReadOnly() throws IOException {
+        MealStore store = openStore();
+        List<Meal> january = new ArrayList<>();
+        for (int day = 1; day <= 20; day++) {
+            january.add(meal("Meal " + day, LocalDateTime.of(2024, 1, day, 8, 0)));
+        }
+        store.addAll(january);
+        store.close();
+        Path file = partitionFile(YearMonth.of(2024, 1));
+        byte[] content = Files.readAllBytes(file);
+        byte[] damaged = Arrays.copyOf(content, content.length / 2);
+        Files.write(file, damaged);
+
+        MealStore reopened = openStore();
+        int readable = reopened.getMealsBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).size();
+        assertTrue(readable < january.size(), "read " + readable);
+        assertThrows(UncheckedIOException.class,
+            () -> reopened.add(meal("Late", LocalDateTime.of(2024, 1, 25, 8, 0))));
+        assertThrows(UncheckedIOException.class, () -> reopened.delete(january.get(0).getId()));
+        // Other months can still be changed
+        reopened.add(meal("February", LocalDateTime.of(2024, 2, 1, 8, 0)));
+        reopened.close();
+
+        assertArrayEquals(damaged, Files.readAllBytes(file));
+        assertTrue(Files.exists(partitionFile(YearMonth.of(2024, 2))));
+    }
+
+    private MealStore openStore() throws IOException {
+        // No archive, so every month stays a plain file
+        MealStore store = new MealStore(StorageFormat.JSON, dir.resolve("meals"), dir.resolve("meals.journal"),
+            DataDirectoryLock.forDirectory(dir), MealStore.DEFAULT_CACHED_MONTHS, 0);
+        store.open(null);
+        return store;
+    }
+
+    private Path partitionFile(YearMonth month) {
+        return StorageFormat.JSON.resolve(dir.resolve("meals"), month.toString());
+    }
+
+    private static Meal meal(String name, LocalDateTime dateTime) {
+        return new Meal(name, dateTime, MealType.LUNCH);
+    }
+
+    private static List<String> names(List<Meal> meals) {
+        return meals.stream().map(Meal::getName).toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.sivasuryaa.fooddietplanner.storage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sivasuryaa.fooddietplanner.model.EntityId;
+import com.sivasuryaa.fooddietplanner.model.FoodCategory;
+import com.sivasuryaa.fooddietplanner.model.FoodItem;
+import com.sivasuryaa.fooddietplanner.model.Meal;
+import com.sivasuryaa.fooddietplanner.model.MealType;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares reading and writing a large meal history through {@link ModelModule}
+ * with plain reflective bean binding, in both storage formats, and
+ * {@link TimestampCodec} with ISO date-time formatting.
+ *
+ * Not a unit test; run it with {@code mvn test-compile}, then
+ * {@code mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.sivasuryaa.fooddietplanner.storage.ModelCodecBenchmark [-Dexec.args=200000]}
+ * as a separate command, since arguments given in the same build would also
+ * reach the food catalog compiler.
+ */
+public class ModelCodecBenchmark {
+    private static final TypeReference<List<Meal>> MEAL_LIST = new TypeReference<>() {};
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int mealCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        List<Meal> meals = createMeals(mealCount);
+        System.out.println(mealCount + " meals, average of " + MEASURED_ROUNDS + " rounds");
+
+        for (StorageFormat format : StorageFormat.values()) {
+            ObjectMapper module = format.createMapper();
+            ObjectMapper reflective = new ObjectMapper(module.getFactory())
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            measure(format + " reflective", reflective, meals);
+            measure(format + " module", module, meals);
+        }
+        measureTimestamps(meals);
+    }
+
+    private static List<Meal> createMeals(int count) {
+        List<Meal> meals = new ArrayList<>(count);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 8, 0);
+        for (int i = 0; i < count; i++) {
+            Meal meal = new Meal("Meal " + i, start.plusMinutes(i * 37L), MealType.LUNCH);
+            meal.addFoodItem(new FoodItem(EntityId.parse("food-" + i % 50), "Food " + i % 50,
+                120, 5, 20, 3, 2, "100g", FoodCategory.FRUITS));
+            meals.add(meal);
+        }
+        return meals;
+    }
+
+    private static void measure(String label, ObjectMapper mapper, List<Meal> meals) throws IOException {
+        ObjectWriter writer = mapper.writerFor(MEAL_LIST);
+        ObjectReader reader = mapper.readerFor(MEAL_LIST);
+        byte[] bytes = null;
+        long writeNanos = 0;
+        long readNanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            bytes = writer.writeValueAsBytes(meals);
+            long written = System.nanoTime();
+            List<Meal> read = reader.readValue(bytes);
+            long end = System.nanoTime();
+            if (read.size() != meals.size()) {
+                throw new IllegalStateException(label + " read " + read.size() + " meals");
+            }
+            if (round >= WARMUP_ROUNDS) {
+                writeNanos += written - start;
+                readNanos += end - written;
+            }
+        }
+        System.out.printf("%-16s write %5d ms  read %5d ms  %6.1f MB%n", label,
+            writeNanos / MEASURED_ROUNDS / 1_000_000, readNanos / MEASURED_ROUNDS / 1_000_000,
+            bytes.length / 1e6);
+    }
+
+    private static void measureTimestamps(List<Meal> meals) {
+        List<String> texts = new ArrayList<>(meals.size());
+        meals.forEach(meal -> texts.add(meal.getDateTime().toString()));
+        char[] buffer = new char[TimestampCodec.MAX_LENGTH];
+        long codecNanos = 0;
+        long isoNanos = 0;
+        long check = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String text : texts) {
+                check += TimestampCodec.format(TimestampCodec.parse(text), buffer);
+            }
+            long codec = System.nanoTime();
+            for (String text : texts) {
+                check += DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.parse(text)).length();
+            }
+            long end = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                codecNanos += codec - start;
+                isoNanos += end - codec;
+            }
+        }
+        System.out.printf("timestamps       codec %5d ms  ISO %5d ms  (%d)%n",
+            codecNanos / MEASURED_ROUNDS / 1_000_000, isoNanos / MEASURED_ROUNDS / 1_000_000, check);
+    }
+}